@@ -0,0 +1,117 @@
+package hic.datamanagement;
+
+import hic.util.HICData;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per second parsed from HIC__INPUT_FILE.txt repeated copies times. scannerLines and tokenListLines
+ * parse the same record lines through TXTLineScanner and through the token list every line went through
+ * before it; parse is the whole-string entry point, cancellation lines included. Read the records counter of
+ * each result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TXTFileParserBenchmark {
+
+    @Param({"200"})
+    public int copies;
+
+    // Relative to the project directory, where mvn runs the benchmarks
+    @Param({"HIC__INPUT_FILE.txt"})
+    public String inputFile;
+
+    private String content;
+    private List<String> recordLines;
+
+    @Setup
+    public void setUp() throws IOException {
+        String sample = Files.readString(Path.of(inputFile));
+        StringBuilder scaled = new StringBuilder(sample.length() * copies + copies);
+        for (int i = 0; i < copies; i++) {
+            scaled.append(sample).append('\n');
+        }
+        content = scaled.toString();
+
+        recordLines = new ArrayList<>();
+        for (String line : content.split("\n")) {
+            if (!line.trim().startsWith("#")) {
+                recordLines.add(line);
+            }
+        }
+    }
+
+    /**
+     * Records parsed, reported as records per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Records {
+
+        public long records;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            records = 0;
+        }
+    }
+
+    @Benchmark
+    public void parse(Records records, Blackhole blackhole) {
+        TXTFileParser parser = new TXTFileParser();
+        parser.parse(content);
+        List<HICData> hicData = parser.getHICData();
+        records.records += hicData.size();
+        blackhole.consume(hicData);
+    }
+
+    @Benchmark
+    public void scannerLines(Records records, Blackhole blackhole) {
+        TXTFileParser parser = new TXTFileParser();
+        TXTLineScanner scanner = new TXTLineScanner();
+        int[] id = {0};
+        for (String line : recordLines) {
+            HICData record = parser.parseRecordLine(line, scanner, () -> ++id[0]);
+            if (record != null) {
+                records.records++;
+                blackhole.consume(record);
+            }
+        }
+    }
+
+    @Benchmark
+    public void tokenListLines(Records records, Blackhole blackhole) {
+        TXTFileParser parser = new TXTFileParser();
+        int[] id = {0};
+        for (String line : recordLines) {
+            HICData record = parser.parseTokenizedRecordLine(line, () -> ++id[0]);
+            if (record != null) {
+                records.records++;
+                blackhole.consume(record);
+            }
+        }
+    }
+}
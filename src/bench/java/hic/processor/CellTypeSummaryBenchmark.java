@@ -0,0 +1,96 @@
+package hic.processor;
+
+import hic.util.CellType;
+import hic.util.HICData;
+import hic.util.OrderTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to total synthetic orders by cell type: the blocked, compensated CellTypeSummary over a list and over an
+ * order table, on the calling thread and on the common pool, against the plain sequential loop it replaced.
+ * Every cell type of the LIMS files occurs, plus one that is not known.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CellTypeSummaryBenchmark {
+
+    private static final String[] CELL_TYPES = {
+            "NK Cells", "CD8+", "CD4+", "Monocytes", "Total T", "B Cells",
+            "Top Layer Ficoll", "Bottom Layer Ficoll", "Unlisted"
+    };
+
+    @Param({"1000000"})
+    public int orders;
+
+    private List<HICData> hicData;
+    private OrderTable orderTable;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        hicData = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            double maxRequest = random.nextInt(100) + random.nextInt(4) * 0.25;
+            double minRequest = maxRequest * random.nextDouble();
+            hicData.add(new HICData(i + 1, 50_000 + i, null, "Requester " + random.nextInt(500),
+                    CELL_TYPES[random.nextInt(CELL_TYPES.length)], maxRequest, minRequest, null));
+        }
+        orderTable = OrderTable.from(hicData);
+    }
+
+    @Benchmark
+    public CellTypeSummary listSequential() {
+        return CellTypeSummary.of(hicData);
+    }
+
+    @Benchmark
+    public CellTypeSummary listParallel() {
+        return CellTypeSummary.of(hicData, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public CellTypeSummary tableSequential() {
+        return CellTypeSummary.of(orderTable);
+    }
+
+    @Benchmark
+    public CellTypeSummary tableParallel() {
+        return CellTypeSummary.of(orderTable, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * One uncompensated running sum per cell type, in list order
+     */
+    @Benchmark
+    public double[] plainLoop() {
+        double[] totals = new double[CellType.count() * 2];
+        for (HICData data : hicData) {
+            CellType cellType = data.getKnownCellType();
+            if (cellType != null) {
+                totals[cellType.ordinal() * 2] += data.getMaxRequest();
+                totals[cellType.ordinal() * 2 + 1] += data.getMinRequest();
+            }
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,215 @@
+package hic.datamanagement;
+
+import hic.util.HICData;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Loads many input files at once, one parse per file on a fixed pool of worker threads, and merges them into a
+ * single dataset. An order line (request id and cell type) found in several files is kept once, from the file
+ * with the latest request date for it; ties go to the file listed last. The merged records keep the position
+ * where each order line was first seen and are renumbered from 1.
+ */
+public class BatchFileLoader {
+
+    // yyyy-MM-dd or yyyyMMdd anywhere in a file name
+    private static final Pattern FILE_NAME_DATE = Pattern.compile("(\\d{4})-?(\\d{2})-?(\\d{2})");
+
+    private final FileReader fileReader;
+    private final int threads;
+
+    public BatchFileLoader(FileReader fileReader) {
+        this(fileReader, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param fileReader picks the parser of each file
+     * @param threads    files parsed at the same time
+     */
+    public BatchFileLoader(FileReader fileReader, int threads) {
+        this.fileReader = fileReader;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * List the input files of a folder for a range of days. A file's day is the date in its name
+     * (yyyy-MM-dd or yyyyMMdd), or the day it was last modified if the name has none.
+     *
+     * @param folder to list, not recursive
+     * @param from   first day, inclusive, or null for no lower bound
+     * @param to     last day, inclusive, or null for no upper bound
+     * @return files in a format FileReader can parse, sorted by day and then name
+     * @throws IOException if the folder cannot be listed
+     */
+    public List<Path> listInputFiles(Path folder, LocalDate from, LocalDate to) throws IOException {
+        List<DatedFile> files = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(folder)) {
+            for (Path path : (Iterable<Path>) entries::iterator) {
+                if (!Files.isRegularFile(path) || path.getFileName().toString().startsWith(".")
+                        || fileReader.parserFor(path) == null) {
+                    continue;
+                }
+                LocalDate day = fileDay(path);
+                if ((from == null || !day.isBefore(from)) && (to == null || !day.isAfter(to))) {
+                    files.add(new DatedFile(path, day));
+                }
+            }
+        }
+
+        files.sort(Comparator.comparing(DatedFile::day).thenComparing(file -> file.path().getFileName().toString()));
+        List<Path> paths = new ArrayList<>(files.size());
+        for (DatedFile file : files) {
+            paths.add(file.path());
+        }
+        return paths;
+    }
+
+    /**
+     * Parse the files concurrently and merge their records
+     *
+     * @param files to load, in the order their records should appear
+     * @return merged records and a load report per file; files that fail are reported and left out
+     */
+    public BatchResult load(List<Path> files) throws InterruptedException {
+        long start = System.nanoTime();
+
+        List<Future<FileLoad>> futures = new ArrayList<>(files.size());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, files.size())));
+        try {
+            for (Path file : files) {
+                futures.add(executor.submit(() -> loadFile(file)));
+            }
+
+            List<FileLoad> loads = new ArrayList<>(files.size());
+            for (Future<FileLoad> future : futures) {
+                try {
+                    loads.add(future.get());
+                } catch (ExecutionException e) {
+                    // loadFile reports its own failures, so this is a bug in a parser
+                    throw new IllegalStateException("Batch load failed: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+
+            return merge(loads, System.nanoTime() - start);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private FileLoad loadFile(Path file) {
+        long start = System.nanoTime();
+        List<HICData> records = new ArrayList<>();
+        try {
+            fileReader.forEachRecord(file, records::add);
+            return new FileLoad(file, records, System.nanoTime() - start, null);
+        } catch (IOException | RuntimeException e) {
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            return new FileLoad(file, List.of(), System.nanoTime() - start, message);
+        }
+    }
+
+    private static BatchResult merge(List<FileLoad> loads, long elapsedNanos) {
+        Map<OrderKey, HICData> latest = new LinkedHashMap<>();
+        int loadedCount = 0;
+        for (FileLoad load : loads) {
+            loadedCount += load.records().size();
+            for (HICData record : load.records()) {
+                OrderKey key = new OrderKey(record.getOrderNumber(), record.getCellType());
+                HICData kept = latest.get(key);
+                if (kept == null || !isBefore(record.getRequestDate(), kept.getRequestDate())) {
+                    latest.put(key, record);
+                }
+            }
+        }
+
+        List<HICData> merged = new ArrayList<>(latest.size());
+        int id = 0;
+        for (HICData record : latest.values()) {
+            merged.add(new HICData(++id, record));
+        }
+        return new BatchResult(merged, loads, loadedCount - merged.size(), elapsedNanos);
+    }
+
+    private static boolean isBefore(LocalDateTime date, LocalDateTime other) {
+        if (date == null || other == null) {
+            return date == null && other != null;
+        }
+        return date.isBefore(other);
+    }
+
+    private static LocalDate fileDay(Path path) throws IOException {
+        Matcher matcher = FILE_NAME_DATE.matcher(path.getFileName().toString());
+        while (matcher.find()) {
+            try {
+                return LocalDate.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                        Integer.parseInt(matcher.group(3)));
+            } catch (DateTimeException e) {
+                // Digits that are not a date, keep looking
+            }
+        }
+        return LocalDate.ofInstant(Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault());
+    }
+
+    private record DatedFile(Path path, LocalDate day) {
+    }
+
+    private record OrderKey(int orderNumber, String cellType) {
+    }
+
+    /**
+     * Records parsed from one file and how long the file took
+     *
+     * @param error why the file could not be parsed, or null if it was
+     */
+    public record FileLoad(Path path, List<HICData> records, long elapsedNanos, String error) {
+
+        public boolean failed() {
+            return error != null;
+        }
+    }
+
+    /**
+     * @param records           merged records, IDs numbered from 1 in file order
+     * @param files             one entry per file, in the order the files were given
+     * @param duplicatesDropped records left out because a later copy of the same order line was kept
+     * @param elapsedNanos      wall time of the whole batch
+     */
+    public record BatchResult(List<HICData> records, List<FileLoad> files, int duplicatesDropped, long elapsedNanos) {
+
+        /**
+         * @return a per-file timing and record count report
+         */
+        public String describe() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("%-40s %-10s %-10s%n", "File", "Records", "Time (ms)"));
+            for (FileLoad file : files) {
+                report.append(String.format("%-40s %-10s %-10.1f%n", file.path().getFileName(),
+                        file.failed() ? "FAILED" : String.valueOf(file.records().size()), file.elapsedNanos() / 1e6));
+                if (file.failed()) {
+                    report.append("    ").append(file.error()).append('\n');
+                }
+            }
+            report.append(String.format("%nMerged records: %d (%d duplicates dropped) in %.1f ms%n",
+                    records.size(), duplicatesDropped, elapsedNanos / 1e6));
+            return report.toString();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package hic.datamanagement;
+
+import hic.util.HICData;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Parses CSV or TSV order sheets. Fields follow RFC 4180: a field in double quotes may hold the delimiter,
+ * line breaks and doubled quotes. Rows are read one at a time and mapped by {@link SpreadsheetRowMapper}.
+ */
+public class DelimitedFileParser implements TextFileParser {
+
+    private final char delimiter;
+    private List<HICData> hicData;
+
+    /**
+     * @param delimiter field separator, ',' for CSV and '\t' for TSV
+     */
+    public DelimitedFileParser(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public static DelimitedFileParser csv() {
+        return new DelimitedFileParser(',');
+    }
+
+    public static DelimitedFileParser tsv() {
+        return new DelimitedFileParser('\t');
+    }
+
+    @Override
+    public void parse(String content) {
+
+        if (content == null || content.isEmpty()) {
+            return;
+        }
+
+        hicData = new ArrayList<>();
+        try {
+            parse(new StringReader(content), hicData::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void parse(Reader reader, Consumer<HICData> sink) throws IOException {
+        BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        SpreadsheetRowMapper mapper = new SpreadsheetRowMapper(sink);
+
+        List<String> row = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldStarted = false;
+        boolean firstChar = true;
+
+        int c;
+        while ((c = bufferedReader.read()) != -1) {
+            // Excel writes a byte order mark in front of UTF-8 CSV files
+            if (firstChar) {
+                firstChar = false;
+                if (c == '\uFEFF') {
+                    continue;
+                }
+            }
+
+            if (quoted) {
+                if (c == '"') {
+                    bufferedReader.mark(1);
+                    int next = bufferedReader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            bufferedReader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && !fieldStarted) {
+                quoted = true;
+                fieldStarted = true;
+            } else if (c == delimiter) {
+                row.add(field.toString());
+                field.setLength(0);
+                fieldStarted = false;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    bufferedReader.mark(1);
+                    if (bufferedReader.read() != '\n') {
+                        bufferedReader.reset();
+                    }
+                }
+                row.add(field.toString());
+                mapper.accept(row);
+                row = new ArrayList<>();
+                field.setLength(0);
+                fieldStarted = false;
+            } else {
+                field.append((char) c);
+                fieldStarted = true;
+            }
+        }
+
+        if (fieldStarted || !row.isEmpty()) {
+            row.add(field.toString());
+            mapper.accept(row);
+        }
+        mapper.finish();
+    }
+
+    @Override
+    public List<HICData> getHICData() {
+        return hicData;
+    }
+}
@@ -2,13 +2,24 @@ package hic.datamanagement;
 
 import hic.util.HICData;
 
-import java.text.ParseException;
-import java.util.List;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.function.Consumer;
 
+/**
+ * Reads the orders of one file format. Text formats also parse content that is already in memory, see
+ * {@link TextFileParser}.
+ */
 public interface FileParser {
 
-    <E> void parse(String content) throws ParseException;
-
-
-    List<HICData> getHICData();
+    /**
+     * Parse records from a file and hand each one to the sink as soon as it is complete
+     *
+     * @param path    of the file
+     * @param charset of text files, ignored by binary formats
+     * @param sink    receives every parsed record in file order
+     * @throws IOException if the file cannot be read
+     */
+    void parse(Path path, Charset charset, Consumer<HICData> sink) throws IOException;
 }
@@ -1,18 +1,58 @@
 package hic.datamanagement;
 
+import hic.util.HICData;
+
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.text.ParseException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class FileReader {
 
     private static FileReader instance = new FileReader();
 
+    // Bytes read from the start of a file with an unknown extension to guess its format
+    private static final int SNIFF_BYTES = 4096;
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+    // Charset of every text file read, the platform's like readFile's java.io.FileReader
+    private static final Charset TEXT_CHARSET = Charset.defaultCharset();
+
+    // File parsers by lower case file extension
+    private final Map<String, Supplier<FileParser>> parsersByExtension = new ConcurrentHashMap<>();
+
+    public FileReader() {
+        registerParser("txt", TXTFileParser::new);
+        registerParser("csv", DelimitedFileParser::csv);
+        registerParser("tsv", DelimitedFileParser::tsv);
+        registerParser("tab", DelimitedFileParser::tsv);
+        registerParser("xlsx", XLSXFileParser::new);
+        registerParser("xlsm", XLSXFileParser::new);
+    }
+
     public static FileReader getInstance() {
         return instance;
     }
 
+    /**
+     * Use a parser for files with the given extension, replacing any parser registered for it before
+     * @param extension without the dot, any case
+     * @param parserFactory creates a new parser for each file
+     */
+    public void registerParser(String extension, Supplier<FileParser> parserFactory) {
+        parsersByExtension.put(extension.toLowerCase(Locale.ROOT), parserFactory);
+    }
+
     /**
      * This method will read in a file when given the file name
      * @param fileName name of the file
@@ -36,43 +76,108 @@ public class FileReader {
     }
 
 
+    /**
+     * Streams the records of a file to the sink one at a time, so large exports never sit in memory as text
+     * @param path of the file
+     * @param sink receives every record in file order
+     * @throws IOException e
+     */
+    public void forEachRecord(Path path, Consumer<HICData> sink) throws IOException {
+        FileParser fileParser = parserFor(path);
+        if (fileParser == null) {
+            throw new IOException("Unknown file extension detected: " + path.getFileName());
+        }
+
+        fileParser.parse(path, TEXT_CHARSET, sink);
+    }
+
+
     /**
      * Parses the given file
      * @param fileName name of the file
      */
     public <E> List<E> parseFile(String fileName) {
-        FileParser fileParser = null;
-
-        // If the file name ends with .txt, proceed by creating new TXTFileParser
-        // If the filename ends with .json, proceed by creating new JSONFileParser
-        if (fileName.endsWith(".txt")) {
-            fileParser = new TXTFileParser();
-        } else if (fileName.endsWith(".TXT")) {
-            fileParser = new TXTFileParser();
-        } else {
+        Path path = Path.of(fileName);
+        FileParser fileParser;
+        try {
+            fileParser = parserFor(path);
+        } catch (IOException e) {
+            System.err.println("An error has occurred when reading file: " + e.getMessage());
+            return null;
+        }
+
+        if (fileParser == null) {
             System.out.println("Unknown file extension detected.");
             return null;
         }
 
+        // Stream the file straight into the record list instead of reading it into one big string first
+        List<HICData> records = new ArrayList<>();
         try {
-            String lines = readFile(fileName); //read all the lines from the file
+            fileParser.parse(path, TEXT_CHARSET, records::add);
+            return (List<E>) records;
+        } catch (IOException e) {
+            System.err.println("An error has occurred when reading file: " + e.getMessage());
+        }
+        System.out.println();
+        return null;
+    }
+
+    /**
+     * Pick the parser for a file by its extension. Files with an unregistered extension are recognized by
+     * their content: a zip archive is taken as an XLSX workbook, a first line of column headers as CSV or TSV,
+     * and a first line starting with a request id or # as LIMS text.
+     * @param path of the file
+     * @return a new parser, or null if the format is not known
+     * @throws IOException if the file has to be sniffed and cannot be read
+     */
+    public FileParser parserFor(Path path) throws IOException {
+        String fileName = path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        if (dot >= 0) {
+            Supplier<FileParser> parserFactory = parsersByExtension.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+            if (parserFactory != null) {
+                return parserFactory.get();
+            }
+        }
+
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
 
-            // If the fileparser is not null
-            if (fileParser != null) {
-                fileParser.parse(lines); //parse the lines of the file based on "data" parameter
-                //System.out.println(lines);
+        byte[] head;
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            head = inputStream.readNBytes(SNIFF_BYTES);
+        }
+        return sniffParser(head);
+    }
 
-                if (fileParser instanceof TXTFileParser) {
-                    return (List<E>) ((TXTFileParser) fileParser).getHICData();
-                }
+    private FileParser sniffParser(byte[] head) {
+        if (head.length >= ZIP_MAGIC.length && Arrays.equals(head, 0, ZIP_MAGIC.length, ZIP_MAGIC, 0, ZIP_MAGIC.length)) {
+            return new XLSXFileParser();
+        }
 
+        // Header names are ASCII, so the first line can be decoded without knowing the charset
+        String text = new String(head, StandardCharsets.ISO_8859_1);
+        String firstLine = "";
+        for (String line : text.split("\r?\n|\r")) {
+            if (!line.isBlank()) {
+                firstLine = line.startsWith("\u00EF\u00BB\u00BF") ? line.substring(3) : line;
+                break;
             }
-        } catch (IOException e) {
-            System.err.println("An error has occurred when reading file: " + e.getMessage());
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
         }
-        System.out.println();
+
+        if (SpreadsheetRowMapper.isHeader(Arrays.asList(firstLine.split("\t", -1)))) {
+            return DelimitedFileParser.tsv();
+        }
+        if (SpreadsheetRowMapper.isHeader(Arrays.asList(firstLine.split(",", -1)))) {
+            return DelimitedFileParser.csv();
+        }
+
+        String trimmed = firstLine.trim();
+        if (!trimmed.isEmpty() && (Character.isDigit(trimmed.charAt(0)) || trimmed.charAt(0) == '#')) {
+            return new TXTFileParser();
+        }
         return null;
     }
 }
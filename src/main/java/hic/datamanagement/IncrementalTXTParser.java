@@ -0,0 +1,230 @@
+package hic.datamanagement;
+
+import hic.util.CancelledRequest;
+import hic.util.HICData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Keeps the parse of an editable block of HIC input text up to date line by line. Edits replace a range of
+ * lines and only those lines are parsed again; the record list is then rebuilt from the cached line results.
+ * Records come out the same as a full TXTFileParser parse of the text, except that IDs are the 1-based
+ * position of each record and a line with a non-numeric request id is skipped (see getFirstFailedLine)
+ * instead of aborting the parse.
+ */
+public class IncrementalTXTParser {
+
+    private final TXTFileParser lineParser = new TXTFileParser();
+    private final TXTLineScanner scanner = new TXTLineScanner();
+    private final List<Line> lines = new ArrayList<>();
+
+    // Record lines and their cancellations as of the last takeRecordChange call
+    private List<Line> publishedRecordLines = new ArrayList<>();
+    private List<List<CancelledRequest>> publishedCancellations = new ArrayList<>();
+
+    public IncrementalTXTParser() {
+        lines.add(parseLine(""));
+    }
+
+    /**
+     * Parse the whole text again. The record list afterwards counts as published, so the next
+     * takeRecordChange only reports edits made after this call.
+     *
+     * @param content full text, lines split on the \n newline char
+     */
+    public void reset(String content) {
+        lines.clear();
+        String text = content == null ? "" : content;
+        int lineStart = 0;
+        while (true) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lines.add(parseLine(text.substring(lineStart)));
+                break;
+            }
+            lines.add(parseLine(text.substring(lineStart, lineEnd)));
+            lineStart = lineEnd + 1;
+        }
+
+        publishedRecordLines = new ArrayList<>();
+        publishedCancellations = new ArrayList<>();
+        collectRecords(publishedRecordLines, publishedCancellations);
+    }
+
+    /**
+     * Replace a range of lines and parse the new lines
+     *
+     * @param firstLine        index of the first replaced line
+     * @param removedLineCount number of lines replaced
+     * @param addedLines       new line texts, without newline chars
+     */
+    public void replaceLines(int firstLine, int removedLineCount, List<String> addedLines) {
+        List<Line> replaced = lines.subList(firstLine, firstLine + removedLineCount);
+        replaced.clear();
+
+        List<Line> parsed = new ArrayList<>(addedLines.size());
+        for (String addedLine : addedLines) {
+            parsed.add(parseLine(addedLine));
+        }
+        replaced.addAll(parsed);
+    }
+
+    /**
+     * @return number of lines currently tracked
+     */
+    public int getLineCount() {
+        return lines.size();
+    }
+
+    /**
+     * @return index of the first line whose request id is not a number, or -1 if there is none
+     */
+    public int getFirstFailedLine() {
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).failure != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param lineIndex of a failed line
+     * @return the error the full parse would have thrown for this line, or null if the line parsed
+     */
+    public RuntimeException getFailure(int lineIndex) {
+        return lines.get(lineIndex).failure;
+    }
+
+    /**
+     * @return every record in document order, with cancellations attached
+     */
+    public List<HICData> getRecords() {
+        List<Line> recordLines = new ArrayList<>();
+        List<List<CancelledRequest>> cancellations = new ArrayList<>();
+        collectRecords(recordLines, cancellations);
+        return materialize(recordLines, cancellations, 0, recordLines.size());
+    }
+
+    /**
+     * Compare the record list with the one published by the previous call and publish the current one.
+     * Records whose line was not edited and whose cancellations did not change count as unchanged.
+     *
+     * @return the range of the record list that changed
+     */
+    public RecordChange takeRecordChange() {
+        List<Line> recordLines = new ArrayList<>(publishedRecordLines.size() + 1);
+        List<List<CancelledRequest>> cancellations = new ArrayList<>(publishedRecordLines.size() + 1);
+        collectRecords(recordLines, cancellations);
+
+        int common = Math.min(recordLines.size(), publishedRecordLines.size());
+        int prefix = 0;
+        while (prefix < common && isUnchanged(prefix, prefix, recordLines, cancellations)) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        while (suffix < common - prefix
+                && isUnchanged(publishedRecordLines.size() - 1 - suffix, recordLines.size() - 1 - suffix, recordLines, cancellations)) {
+            suffix++;
+        }
+
+        RecordChange change = new RecordChange(prefix, publishedRecordLines.size() - prefix - suffix,
+                materialize(recordLines, cancellations, prefix, recordLines.size() - suffix));
+        publishedRecordLines = recordLines;
+        publishedCancellations = cancellations;
+        return change;
+    }
+
+    private boolean isUnchanged(int publishedIndex, int currentIndex, List<Line> recordLines,
+                                List<List<CancelledRequest>> cancellations) {
+        return publishedRecordLines.get(publishedIndex) == recordLines.get(currentIndex)
+                && Objects.equals(publishedCancellations.get(publishedIndex), cancellations.get(currentIndex));
+    }
+
+    /**
+     * Walk the lines once, pairing every record line with the # lines that follow it
+     */
+    private void collectRecords(List<Line> recordLines, List<List<CancelledRequest>> cancellations) {
+        Line owner = null;
+        List<CancelledRequest> ownerCancellations = List.of();
+        for (Line line : lines) {
+            if (line.cancellation != null) {
+                if (owner != null) {
+                    if (ownerCancellations.isEmpty()) {
+                        ownerCancellations = new ArrayList<>();
+                    }
+                    ownerCancellations.add(line.cancellation);
+                }
+            } else if (line.record != null) {
+                if (owner != null) {
+                    recordLines.add(owner);
+                    cancellations.add(ownerCancellations);
+                }
+                owner = line;
+                ownerCancellations = List.of();
+            }
+        }
+        if (owner != null) {
+            recordLines.add(owner);
+            cancellations.add(ownerCancellations);
+        }
+    }
+
+    private List<HICData> materialize(List<Line> recordLines, List<List<CancelledRequest>> cancellations, int from, int to) {
+        List<HICData> records = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            HICData record = new HICData(i + 1, recordLines.get(i).record);
+            for (CancelledRequest cancellation : cancellations.get(i)) {
+                record.addRecentlyCancelled(cancellation);
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    private Line parseLine(String text) {
+        String trimmedLine = text.trim();
+        if (trimmedLine.startsWith("#")) {
+            return new Line(null, CancelledRequest.parse(trimmedLine), null);
+        }
+
+        try {
+            return new Line(lineParser.parseRecordLine(text, scanner, () -> 0), null, null);
+        } catch (RuntimeException e) {
+            return new Line(null, null, e);
+        }
+    }
+
+    /**
+     * Records removed at an index of the record list and the records now in their place
+     *
+     * @param from         index of the first changed record
+     * @param removedCount number of records that were there before
+     * @param addedRecords records there now, IDs numbered by position
+     */
+    public record RecordChange(int from, int removedCount, List<HICData> addedRecords) {
+
+        public boolean isEmpty() {
+            return removedCount == 0 && addedRecords.isEmpty();
+        }
+    }
+
+    /**
+     * Parse result of one line: a record (without cancellations), a # cancellation, or neither
+     */
+    private static final class Line {
+
+        private final HICData record;
+        private final CancelledRequest cancellation;
+        private final RuntimeException failure;
+
+        private Line(HICData record, CancelledRequest cancellation, RuntimeException failure) {
+            this.record = record;
+            this.cancellation = cancellation;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package hic.datamanagement;
+
+import hic.util.HICData;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parsed day of HIC orders (records with their cancellation lines, plus the donor) saved as a compact binary
+ * file, so the day can be reopened without the original input text.
+ * <p>
+ * Layout, big endian: a header (magic, version, saved-at seconds, string and record counts, donor string),
+ * a table of the distinct UTF-8 strings, then one fixed-width entry per record that points into the table.
+ * Names, cell types and cancellations repeat a lot within a day, so each is stored once.
+ */
+public record OrderSnapshot(String donor, LocalDateTime savedAt, List<HICData> records) {
+
+    /** File extension used for snapshot files */
+    public static final String FILE_EXTENSION = ".hicsnap";
+
+    private static final int MAGIC = 0x48494353; // "HICS"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 2 + 8 + 4 + 4 + 4;
+    // id, order number, request date seconds + nanos, name, cell type, max, min, cancellations
+    private static final int RECORD_BYTES = 4 + 4 + 8 + 4 + 4 + 4 + 8 + 8 + 4;
+    private static final int NO_STRING = -1;
+    private static final int NO_DATE = -1;
+
+    public OrderSnapshot {
+        records = List.copyOf(records);
+    }
+
+    /**
+     * Write the snapshot, replacing the file only once it is complete
+     *
+     * @param path of the snapshot file
+     * @throws IOException e
+     */
+    public void write(Path path) throws IOException {
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIndex = new HashMap<>();
+        int donorIndex = intern(donor, strings, stringIndex);
+
+        int[] recordStrings = new int[records.size() * 3];
+        for (int i = 0; i < records.size(); i++) {
+            HICData record = records.get(i);
+            recordStrings[i * 3] = intern(record.getName(), strings, stringIndex);
+            recordStrings[i * 3 + 1] = intern(record.getCellType(), strings, stringIndex);
+            recordStrings[i * 3 + 2] = intern(record.getRecentlyCancelledRequests(), strings, stringIndex);
+        }
+
+        List<byte[]> encodedStrings = new ArrayList<>(strings.size());
+        long size = HEADER_BYTES + (long) RECORD_BYTES * records.size();
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            encodedStrings.add(bytes);
+            size += 4 + bytes.length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Too many records for one snapshot: " + records.size());
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) 0);
+        buffer.putLong(savedAt == null ? 0 : savedAt.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(strings.size());
+        buffer.putInt(records.size());
+        buffer.putInt(donorIndex);
+
+        for (byte[] bytes : encodedStrings) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+
+        for (int i = 0; i < records.size(); i++) {
+            HICData record = records.get(i);
+            LocalDateTime requestDate = record.getRequestDate();
+            buffer.putInt(record.getID());
+            buffer.putInt(record.getOrderNumber());
+            buffer.putLong(requestDate == null ? 0 : requestDate.toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(requestDate == null ? NO_DATE : requestDate.getNano());
+            buffer.putInt(recordStrings[i * 3]);
+            buffer.putInt(recordStrings[i * 3 + 1]);
+            buffer.putDouble(record.getMaxRequest());
+            buffer.putDouble(record.getMinRequest());
+            buffer.putInt(recordStrings[i * 3 + 2]);
+        }
+        buffer.flip();
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Read a snapshot. The file is read in one go and closed before decoding, so it is never held open or
+     * mapped afterwards and a later write can replace it.
+     *
+     * @param path of the snapshot file
+     * @return the saved day, records in the order they were written
+     * @throws IOException if the file cannot be read or is not a snapshot this version understands
+     */
+    public static OrderSnapshot read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+
+        try {
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not an HIC snapshot file: " + path.getFileName());
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported HIC snapshot version " + version + ": " + path.getFileName());
+            }
+            buffer.getShort();
+
+            long savedAtSeconds = buffer.getLong();
+            int stringCount = buffer.getInt();
+            int recordCount = buffer.getInt();
+            int donorIndex = buffer.getInt();
+            if (stringCount < 0 || recordCount < 0) {
+                throw new IOException("Corrupt HIC snapshot header: " + path.getFileName());
+            }
+
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            if (buffer.remaining() != (long) RECORD_BYTES * recordCount) {
+                throw new IOException("Corrupt HIC snapshot, record section has the wrong size: " + path.getFileName());
+            }
+
+            List<HICData> records = new ArrayList<>(recordCount);
+            for (int i = 0; i < recordCount; i++) {
+                int id = buffer.getInt();
+                int orderNumber = buffer.getInt();
+                long dateSeconds = buffer.getLong();
+                int dateNanos = buffer.getInt();
+                String name = stringAt(strings, buffer.getInt(), path);
+                String cellType = stringAt(strings, buffer.getInt(), path);
+                double maxRequest = buffer.getDouble();
+                double minRequest = buffer.getDouble();
+                String cancellations = stringAt(strings, buffer.getInt(), path);
+
+                LocalDateTime requestDate = dateNanos == NO_DATE
+                        ? null
+                        : LocalDateTime.ofEpochSecond(dateSeconds, dateNanos, ZoneOffset.UTC);
+                records.add(new HICData(id, orderNumber, requestDate, name, cellType, maxRequest, minRequest, cancellations));
+            }
+
+            LocalDateTime savedAt = LocalDateTime.ofEpochSecond(savedAtSeconds, 0, ZoneOffset.UTC);
+            return new OrderSnapshot(stringAt(strings, donorIndex, path), savedAt, records);
+        } catch (BufferUnderflowException | NegativeArraySizeException | java.time.DateTimeException e) {
+            throw new IOException("Corrupt HIC snapshot file: " + path.getFileName(), e);
+        }
+    }
+
+    private static int intern(String value, List<String> strings, Map<String, Integer> stringIndex) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer index = stringIndex.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.add(value);
+            stringIndex.put(value, index);
+        }
+        return index;
+    }
+
+    private static String stringAt(String[] strings, int index, Path path) throws IOException {
+        if (index == NO_STRING) {
+            return null;
+        }
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("Corrupt HIC snapshot, bad string reference: " + path.getFileName());
+        }
+        return strings[index];
+    }
+}
@@ -0,0 +1,277 @@
+package hic.datamanagement;
+
+import hic.util.CellType;
+import hic.util.FieldDecoders;
+import hic.util.HICData;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Turns the rows of a spreadsheet (CSV, TSV or XLSX) into HIC data. The first non-blank row names the columns;
+ * the headers of the tool's own exports and preview table are recognized, as are common variants
+ * (Request ID, Requester, Maximum, ...). Without a header row the columns are taken in preview order:
+ * Order #, Request Date, Name, Cell Type, Max, Min, Cancellations.
+ * <p>
+ * As with LIMS text, a row whose first cell starts with # is a cancellation line for the record above it.
+ * Rows with a single filled cell (the cell type labels of sorted exports) are skipped.
+ */
+class SpreadsheetRowMapper {
+
+    enum Column {
+        ORDER_NUMBER("order", "ordernumber", "orderno", "requestid", "request", "requestnumber"),
+        REQUEST_DATE("requestdate", "date", "datetime", "requestdatetime", "requested"),
+        REQUEST_TIME("time", "requesttime"),
+        NAME("name", "requester", "requestername", "orderedby"),
+        CELL_TYPE("celltype", "cell", "product"),
+        MAX_REQUEST("max", "maxrequest", "maximum"),
+        MIN_REQUEST("min", "minrequest", "minimum"),
+        CANCELLATIONS("cancellations", "recentlycancelledrequests", "cancelled");
+
+        private final String[] aliases;
+
+        Column(String... aliases) {
+            this.aliases = aliases;
+        }
+
+        private static Column forHeader(String header) {
+            String key = normalizeHeader(header);
+            for (Column column : values()) {
+                for (String alias : column.aliases) {
+                    if (alias.equals(key)) {
+                        return column;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final Column[] DEFAULT_LAYOUT = {
+            Column.ORDER_NUMBER, Column.REQUEST_DATE, Column.NAME, Column.CELL_TYPE,
+            Column.MAX_REQUEST, Column.MIN_REQUEST, Column.CANCELLATIONS
+    };
+
+    private static final Column[] REQUIRED_COLUMNS = {
+            Column.ORDER_NUMBER, Column.REQUEST_DATE, Column.NAME, Column.CELL_TYPE,
+            Column.MAX_REQUEST, Column.MIN_REQUEST
+    };
+
+    // A row naming at least this many columns is taken as the header
+    private static final int MIN_HEADER_COLUMNS = 3;
+
+    private final Consumer<HICData> sink;
+    private Map<Column, Integer> columnIndex;
+    private int rowNumber = 0;
+    private int IDCounter = 0;
+    private HICData lastRecord;
+
+    /**
+     * @param sink receives each record once the rows after it show it is complete
+     */
+    SpreadsheetRowMapper(Consumer<HICData> sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * @param cells of the next row, in column order; missing trailing cells count as blank
+     * @throws IOException if the header row lacks a required column
+     */
+    void accept(List<String> cells) throws IOException {
+        rowNumber++;
+        int filled = countFilled(cells);
+        if (filled == 0) {
+            return;
+        }
+
+        if (columnIndex == null) {
+            if (isHeader(cells)) {
+                columnIndex = mapHeader(cells);
+                return;
+            }
+            columnIndex = defaultLayout();
+        }
+
+        String first = firstFilled(cells);
+        if (first.startsWith("#")) {
+            if (lastRecord != null) {
+                lastRecord.addRecentlyCancelledRequest(first);
+            }
+            return;
+        }
+        if (filled == 1) {
+            return;
+        }
+
+        HICData record = toRecord(cells);
+        if (record != null) {
+            if (lastRecord != null) {
+                sink.accept(lastRecord);
+            }
+            lastRecord = record;
+        }
+    }
+
+    void finish() {
+        if (lastRecord != null) {
+            sink.accept(lastRecord);
+            lastRecord = null;
+        }
+    }
+
+    /**
+     * @return true if enough cells of the row are known column headers
+     */
+    static boolean isHeader(List<String> cells) {
+        int known = 0;
+        for (String cell : cells) {
+            if (cell != null && Column.forHeader(cell) != null) {
+                known++;
+            }
+        }
+        return known >= MIN_HEADER_COLUMNS;
+    }
+
+    private HICData toRecord(List<String> cells) {
+        String orderText = cell(cells, Column.ORDER_NUMBER);
+        int orderNumber;
+        try {
+            orderNumber = parseOrderNumber(orderText);
+        } catch (NumberFormatException e) {
+            System.err.println("Skipping row " + rowNumber + ": order number '" + orderText + "' is not a number");
+            return null;
+        }
+
+        LocalDateTime requestDate;
+        try {
+            requestDate = parseRequestDate(cell(cells, Column.REQUEST_DATE), cell(cells, Column.REQUEST_TIME));
+        } catch (DateTimeParseException e) {
+            System.err.println("Error parsing date/time: " + e.getMessage());
+            return null;
+        }
+
+        double maxRequest;
+        double minRequest;
+        try {
+            maxRequest = FieldDecoders.parseDecimal(cell(cells, Column.MAX_REQUEST));
+            minRequest = FieldDecoders.parseDecimal(cell(cells, Column.MIN_REQUEST));
+        } catch (NumberFormatException e) {
+            System.err.println("Skipping row " + rowNumber + ": max/min request is not a number");
+            return null;
+        }
+
+        String cellTypeText = cell(cells, Column.CELL_TYPE);
+        CellType cellType = CellType.resolve(cellTypeText);
+
+        return new HICData(++IDCounter, orderNumber, requestDate, cell(cells, Column.NAME),
+                cellType == null ? cellTypeText : cellType.getLabel(), maxRequest, minRequest,
+                cell(cells, Column.CANCELLATIONS));
+    }
+
+    /**
+     * Order numbers from spreadsheets can come through as whole decimals (12345.0)
+     */
+    private static int parseOrderNumber(String text) {
+        try {
+            return FieldDecoders.parseInt(text);
+        } catch (NumberFormatException e) {
+            double value = FieldDecoders.parseDecimal(text);
+            if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw e;
+            }
+            return (int) value;
+        }
+    }
+
+    /**
+     * Accepts the yyyy-MM-dd HH:mm:ss layout of LIMS and the preview table, and the ISO layout
+     * (2024-01-31T09:30) of the Excel exports. A separate time column is joined to the date.
+     */
+    private static LocalDateTime parseRequestDate(String date, String time) {
+        String text = time.isEmpty() ? date : date + " " + time;
+        try {
+            return FieldDecoders.parseDateTime(text);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(text);
+            } catch (DateTimeParseException isoFailure) {
+                throw e;
+            }
+        }
+    }
+
+    private String cell(List<String> cells, Column column) {
+        Integer index = columnIndex.get(column);
+        if (index == null || index >= cells.size() || cells.get(index) == null) {
+            return "";
+        }
+        return cells.get(index).trim();
+    }
+
+    private static Map<Column, Integer> mapHeader(List<String> cells) throws IOException {
+        Map<Column, Integer> index = new EnumMap<>(Column.class);
+        for (int i = 0; i < cells.size(); i++) {
+            Column column = cells.get(i) == null ? null : Column.forHeader(cells.get(i));
+            if (column != null && !index.containsKey(column)) {
+                index.put(column, i);
+            }
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (Column column : REQUIRED_COLUMNS) {
+            if (!index.containsKey(column)) {
+                missing.add(column.name());
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IOException("Spreadsheet header is missing column(s): " + missing + " in " + cells);
+        }
+        return index;
+    }
+
+    private static Map<Column, Integer> defaultLayout() {
+        Map<Column, Integer> index = new EnumMap<>(Column.class);
+        for (int i = 0; i < DEFAULT_LAYOUT.length; i++) {
+            index.put(DEFAULT_LAYOUT[i], i);
+        }
+        return index;
+    }
+
+    private static String normalizeHeader(String header) {
+        StringBuilder key = new StringBuilder(header.length());
+        String lower = header.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    private static int countFilled(List<String> cells) {
+        int filled = 0;
+        for (String cell : cells) {
+            if (cell != null && !cell.isBlank()) {
+                filled++;
+            }
+        }
+        return filled;
+    }
+
+    private static String firstFilled(List<String> cells) {
+        for (String cell : cells) {
+            if (cell != null && !cell.isBlank()) {
+                return cell.trim();
+            }
+        }
+        return "";
+    }
+}
@@ -1,16 +1,32 @@
 package hic.datamanagement;
 
+import hic.util.CellType;
+import hic.util.FieldDecoders;
 import hic.util.HICData;
+import hic.util.OrderTable;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 
-public class TXTFileParser implements FileParser {
+public class TXTFileParser implements TextFileParser {
+
+    // Content shorter than this per chunk is parsed on the calling thread
+    private static final int MIN_PARALLEL_CHUNK_CHARS = 64 * 1024;
+
+    // Chunks handed out per worker, so a slow chunk does not leave the other workers idle
+    private static final int CHUNKS_PER_WORKER = 4;
 
     private List<HICData> hicData;
 
@@ -27,194 +43,332 @@ public class TXTFileParser implements FileParser {
         }
 
         hicData = new ArrayList<>();
+        RecordAssembler assembler = new RecordAssembler(hicData::add, null);
+        assembleLines(content, 0, content.length(), assembler);
+        assembler.finish();
+    }
 
-        String[] lines = content.split("\n"); //split each line based off of the \n newline char
+    /**
+     * Parse the content straight into the columns of an order table. Records go to the table as soon as their
+     * # lines are read, so no list of HICData is kept for the whole content.
+     *
+     * @param content to parse
+     * @return the parsed orders, empty if there is no content
+     */
+    public OrderTable parseToTable(String content) {
+        OrderTable table = new OrderTable();
+        if (content == null || content.isEmpty()) {
+            return table;
+        }
 
-        //System.out.println(Arrays.toString(lines));
+        RecordAssembler assembler = new RecordAssembler(table::add, null);
+        assembleLines(content, 0, content.length(), assembler);
+        assembler.finish();
+        return table;
+    }
 
-        // Specify date and time formatting
-        DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    /**
+     * Parse the content on the common fork/join pool. See {@link #parseParallel(String, ForkJoinPool)}.
+     *
+     * @param content to parse
+     */
+    public void parseParallel(String content) {
+        parseParallel(content, ForkJoinPool.commonPool());
+    }
 
-        StringBuilder currentRecord = new StringBuilder(); //create currentRecord stringbuilder
+    /**
+     * Parse the content in chunks on a fork/join pool. Chunks start at record lines, never at a # line, and the
+     * results are stitched back in file order: IDs continue across chunks and any # lines a chunk sees before its
+     * first record go to the last record of the chunks before it. The records match {@link #parse(String)}.
+     * Small content is parsed on the calling thread.
+     *
+     * @param content to parse
+     * @param pool    to run the chunks on
+     */
+    public void parseParallel(String content, ForkJoinPool pool) {
 
-        int IDCounter = 0;
-        HICData lastRecord = null;
+        if (content == null || content.isEmpty()) {
+            return;
+        }
 
-        // Iterate over the lines of the file
-        for (String line : lines) {
-            String trimmedLine = line.trim();
+        int chunkCount = Math.min(pool.getParallelism() * CHUNKS_PER_WORKER, content.length() / MIN_PARALLEL_CHUNK_CHARS);
+        if (chunkCount < 2) {
+            parse(content);
+            return;
+        }
 
-            // If the line starts with a hashtag, append that line to the current record
-            if (trimmedLine.startsWith("#")) {
-                if (lastRecord != null) {
-                    lastRecord.addRecentlyCancelledRequest(trimmedLine);
-                }
-                currentRecord.append(" ").append(trimmedLine);
-            } else {
+        List<ChunkParseTask> tasks = new ArrayList<>(chunkCount);
+        int chunkStart = 0;
+        for (int i = 1; i <= chunkCount; i++) {
+            int chunkEnd = i == chunkCount ? content.length()
+                    : Math.max(chunkStart, nextRecordLineStart(content, (int) ((long) content.length() * i / chunkCount)));
+            if (chunkEnd > chunkStart) {
+                tasks.add(new ChunkParseTask(content, chunkStart, chunkEnd));
+            }
+            chunkStart = chunkEnd;
+        }
 
-                String[] token = line.split("[\t ]+"); //split the line by tab or space
-                List<String> tokens = new ArrayList<>();
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
 
-                // Skip the token if its length is 0
-                if (token.length == 0) {
-                    continue;
-                }
+        // Stitch the chunks back together in file order
+        hicData = new ArrayList<>();
+        HICData lastRecord = null;
+        int idOffset = 0;
+        for (ChunkParseTask task : tasks) {
+            ChunkResult chunk = task.join();
 
-//                // If the iteration hits an I or E_A, stop processing past this char/string
-//                for (String part : token) {
-//
-//                    if (Objects.equals(part, "I") || Objects.equals(part, "E_A")) {
-//                        break;
-//                    }
-//                    tokens.add(part); //add everything up to I or E_A into tokens list
-//                }
-
-                // If the iteration hits an I or E_A, stop processing past this char/string
-                for (int i = 0; i < token.length; i++) {
-                    if (i < 5) {
-                        tokens.add(token[i]); // add everything from the beginning up to index 6 into tokens list
-                    } else {
-                        String part = token[i];
-                        if (Objects.equals(part, "I") || Objects.equals(part, "E_A") || Objects.equals(part, "E_C")) {
-                            break;
-                        }
-                        tokens.add(part); // add everything starting from index 7 up to I or E_A into tokens list
-                    }
+            if (lastRecord != null) {
+                for (String cancellation : chunk.leadingCancellations) {
+                    lastRecord.addRecentlyCancelledRequest(cancellation);
                 }
+            }
 
+            for (HICData record : chunk.records) {
+                HICData numbered = idOffset == 0 ? record : new HICData(record.getID() + idOffset, record);
+                hicData.add(numbered);
+                lastRecord = numbered;
+            }
+            idOffset += chunk.idCount;
 
-                //System.out.println(tokens);
-
-                // If the number of tokens is 6 or more
-                if (tokens.size() >= 6) {
-
-                    // Get the information by specified index to get HIC data
-                    try {
-                        // Get the request ID
-                        int requestID = Integer.parseInt(tokens.get(0).trim());
-                        IDCounter++;
-
-                        // Get the date and time
-                        LocalDateTime requestDate = LocalDateTime.parse(tokens.get(1) + " " + tokens.get(2), dateTimeFormatter);
-
-                        // Get the name
-                        StringBuilder nameBuilder = new StringBuilder(tokens.get(3).trim());
-                        for (int i = 4; i < tokens.size(); i++) {
-
-                            if (isCellTypeStart(tokens, i)) {
-                                break;
-                            }
-                            nameBuilder.append(" ").append(tokens.get(i));
-                        }
-
-                        String name = normalizeName(nameBuilder.toString()); //put nameBuilder into string
-
-                        // Get the cell type
-                        String cellType = null;
-
-                        //System.out.println(tokens);
-
-                        for (int i = 0; i < tokens.size(); i++) {
-                            String parts = tokens.get(i);
-                            if (isCellTypeStart(tokens, i)) {
-                                cellType = parts.trim();
-
-                                if (cellType.equalsIgnoreCase("Total")) {
-                                    cellType = "Total T";
-                                } else if (cellType.equalsIgnoreCase("B")) {
-                                    cellType = "B Cells";
-                                } else if (cellType.equalsIgnoreCase("NK")) {
-                                    cellType = "NK Cells";
-                                } else if (cellType.equalsIgnoreCase("Unpurified")) {
-                                    cellType = "Unpurified Apheresis";
-                                } else if (cellType.equalsIgnoreCase("Top")) {
-                                    cellType = "Top Layer Ficoll";
-                                } else if (cellType.equalsIgnoreCase("Bottom")) {
-                                    cellType = "Bottom Layer Ficoll";
-                                }
-                            }
-                        }
-                        //System.out.println(cellType);
-
-
-                        // Get the max request
-                        double maxRequest = 0.0;
-
-                        // Get the minimum request
-                        double minRequest = 0.0;
-
-                        // Iterate over the tokens
-                        for (int i = 4; i < tokens.size() - 1; i++) {
-
-                            // If the token is numeric and the next token is strictly numeric, make the current token the max request and the next token the min request
-                            if (isNumeric(tokens.get(i)) && i + 1 < tokens.size() && isNumeric(tokens.get(i + 1))) {
-                                maxRequest = Double.parseDouble(tokens.get(i).replaceAll("\"", "").trim());
-                                minRequest = Double.parseDouble(tokens.get(i + 1).replaceAll("\"", "").trim());
-                                break; // Exit the loop since we found both max and min request
-                            }
-                        }
-
-
-                            HICData hicDataItem = new HICData(IDCounter, requestID, requestDate, name, cellType, maxRequest, minRequest); //use constructor to create HIC info
-                            hicData.add(hicDataItem); //add hicDataItem to HIC data arraylist
-                            lastRecord = hicDataItem;
-                            //System.out.println(hicDataItem);
-                        } catch (DateTimeParseException e) {
-                        System.err.println("Error parsing date/time: " + e.getMessage());
-                    }
-                }
+            if (chunk.failure != null) {
+                throw chunk.failure;
             }
         }
     }
 
+    /**
+     * Feed the lines between two offsets (split on the \n newline char) to the assembler without
+     * materializing a line array
+     *
+     * @param content   holding the lines
+     * @param from      offset of the first line
+     * @param to        offset just past the last line
+     * @param assembler receiving each line
+     */
+    private void assembleLines(String content, int from, int to, RecordAssembler assembler) {
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > to) {
+                lineEnd = to;
+            }
+            assembler.accept(content.substring(lineStart, lineEnd));
+            lineStart = lineEnd + 1;
+        }
+    }
 
     /**
-     * Method to test whether string is numeric or not
-     * @param str to test
-     * @return true if numeric, false otherwise
+     * Find the start of the first line at or after an offset that is not a # cancellation line
+     *
+     * @param content to search
+     * @param from    offset to start from
+     * @return offset of that line, or the content length if there is none
      */
-    private boolean isNumeric(String str) {
-        return str.matches("-?\\d+(\\.\\d+)?");
+    private static int nextRecordLineStart(String content, int from) {
+        int newline = content.indexOf('\n', from - 1);
+        if (newline < 0) {
+            return content.length();
+        }
+
+        int lineStart = newline + 1;
+        while (lineStart < content.length()) {
+            // Skip the leading characters trim() would drop
+            int first = lineStart;
+            while (first < content.length() && content.charAt(first) <= ' ' && content.charAt(first) != '\n') {
+                first++;
+            }
+            if (first >= content.length() || content.charAt(first) != '#') {
+                return lineStart;
+            }
+
+            newline = content.indexOf('\n', first);
+            if (newline < 0) {
+                return content.length();
+            }
+            lineStart = newline + 1;
+        }
+        return content.length();
     }
 
-    private boolean isCellTypeStart(List<String> tokens, int index) {
-        if (tokens == null || index < 0 || index >= tokens.size()) {
-            return false;
+    /**
+     * Parse records straight from a reader, one line at a time. Each record is handed to the sink once its
+     * trailing # cancellation lines have been read, so only a single record is held in memory at a time.
+     *
+     * @param reader to read from
+     * @param sink   receives every parsed record in file order
+     * @throws IOException if the reader fails
+     */
+    @Override
+    public void parse(Reader reader, Consumer<HICData> sink) throws IOException {
+        BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        RecordAssembler assembler = new RecordAssembler(sink, null);
+
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            assembler.accept(line);
+        }
+        assembler.finish();
+    }
+
+    /**
+     * Parse a single record line into HIC data
+     *
+     * @param line    to parse
+     * @param scanner reused for every line of the same parse
+     * @param nextId  hands out the row ID, taken for every line whose request id parses (even if the date does not)
+     * @return the record, or null if the line is not a record
+     */
+    HICData parseRecordLine(String line, TXTLineScanner scanner, IntSupplier nextId) {
+        int fieldCount = scanner.tokenize(line);
+
+        // Lines with leading separators or control characters keep the token list behavior
+        if (fieldCount == TXTLineScanner.NEEDS_FALLBACK) {
+            return parseTokenizedRecordLine(line, nextId);
+        }
+
+        if (fieldCount < 6) {
+            return null;
         }
 
-        String token = cleanToken(tokens.get(index));
-        if (token.equalsIgnoreCase("CD4+") || token.equalsIgnoreCase("CD8+")
-                || token.equalsIgnoreCase("Monocytes") || token.equalsIgnoreCase("PBMC")
-                || token.equalsIgnoreCase("Unpurified") || token.equalsIgnoreCase("Top")
-                || token.equalsIgnoreCase("Bottom")) {
-            return true;
+        try {
+            int requestID = scanner.requestId();
+            int id = nextId.getAsInt();
+
+            LocalDateTime requestDate = scanner.requestDate();
+            String name = scanner.name();
+            String cellType = scanner.cellType();
+            scanner.scanMaxAndMin();
+
+            return new HICData(id, requestID, requestDate, name, cellType, scanner.maxRequest(), scanner.minRequest());
+        } catch (DateTimeParseException e) {
+            System.err.println("Error parsing date/time: " + e.getMessage());
+            return null;
         }
+    }
+
+    /**
+     * Parse a single record line by splitting it into a token list, the way every line was parsed before
+     * TXTLineScanner. Package-private so the parser benchmark can compare the two.
+     *
+     * @param line   to parse
+     * @param nextId hands out the row ID
+     * @return the record, or null if the line is not a record
+     */
+    HICData parseTokenizedRecordLine(String line, IntSupplier nextId) {
+
+        String[] token = line.split("[\t ]+"); //split the line by tab or space
+        List<String> tokens = new ArrayList<>();
 
-        if (token.equalsIgnoreCase("NK")) {
-            return isFollowedByToken(tokens, index, "Cells") || isFollowedByNumber(tokens, index);
+        // Skip the token if its length is 0
+        if (token.length == 0) {
+            return null;
         }
 
-        if (token.equalsIgnoreCase("B")) {
-            return isFollowedByToken(tokens, index, "Cells") || isFollowedByNumber(tokens, index);
+        // If the iteration hits an I or E_A, stop processing past this char/string
+        for (int i = 0; i < token.length; i++) {
+            if (i < 5) {
+                tokens.add(token[i]); // add everything from the beginning up to index 6 into tokens list
+            } else {
+                String part = token[i];
+                if (Objects.equals(part, "I") || Objects.equals(part, "E_A") || Objects.equals(part, "E_C")) {
+                    break;
+                }
+                tokens.add(part); // add everything starting from index 7 up to I or E_A into tokens list
+            }
         }
 
-        if (token.equalsIgnoreCase("Total")) {
-            return index + 1 < tokens.size() && cleanToken(tokens.get(index + 1)).equalsIgnoreCase("T");
+        // If the number of tokens is 6 or more
+        if (tokens.size() < 6) {
+            return null;
         }
 
-        return false;
+        // Get the information by specified index to get HIC data
+        try {
+            // Get the request ID
+            int requestID = FieldDecoders.parseInt(tokens.get(0).trim());
+            int id = nextId.getAsInt();
+
+            // Get the date and time
+            LocalDateTime requestDate = FieldDecoders.parseDateTime(tokens.get(1) + " " + tokens.get(2));
+
+            // Get the name
+            StringBuilder nameBuilder = new StringBuilder(tokens.get(3).trim());
+            for (int i = 4; i < tokens.size(); i++) {
+
+                if (isCellTypeStart(tokens, i)) {
+                    break;
+                }
+                nameBuilder.append(" ").append(tokens.get(i));
+            }
+
+            String name = normalizeName(nameBuilder.toString()); //put nameBuilder into string
+
+            // Get the cell type (the last one on the line wins)
+            String cellType = null;
+
+            for (int i = 0; i < tokens.size(); i++) {
+                CellType type = cellTypeStartingAt(tokens, i);
+                if (type != null) {
+                    cellType = type.getLabel();
+                }
+            }
+
+            // Get the max request
+            double maxRequest = 0.0;
+
+            // Get the minimum request
+            double minRequest = 0.0;
+
+            // Iterate over the tokens
+            for (int i = 4; i < tokens.size() - 1; i++) {
+
+                // If the token is numeric and the next token is strictly numeric, make the current token the max request and the next token the min request
+                if (isNumeric(tokens.get(i)) && i + 1 < tokens.size() && isNumeric(tokens.get(i + 1))) {
+                    maxRequest = FieldDecoders.parseDecimal(tokens.get(i));
+                    minRequest = FieldDecoders.parseDecimal(tokens.get(i + 1));
+                    break; // Exit the loop since we found both max and min request
+                }
+            }
+
+            return new HICData(id, requestID, requestDate, name, cellType, maxRequest, minRequest); //use constructor to create HIC info
+        } catch (DateTimeParseException e) {
+            System.err.println("Error parsing date/time: " + e.getMessage());
+            return null;
+        }
     }
 
-    private boolean isFollowedByToken(List<String> tokens, int index, String expected) {
-        return index + 1 < tokens.size() && cleanToken(tokens.get(index + 1)).equalsIgnoreCase(expected);
+
+    /**
+     * Method to test whether string is numeric or not
+     * @param str to test
+     * @return true if numeric, false otherwise
+     */
+    private boolean isNumeric(String str) {
+        return str.matches("-?\\d+(\\.\\d+)?");
     }
 
-    private boolean isFollowedByNumber(List<String> tokens, int index) {
-        return index + 1 < tokens.size() && isNumeric(cleanToken(tokens.get(index + 1)));
+    private boolean isCellTypeStart(List<String> tokens, int index) {
+        return cellTypeStartingAt(tokens, index) != null;
     }
 
-    private String cleanToken(String token) {
-        return token == null ? "" : token.replaceAll("[^A-Za-z0-9+]", "").trim();
+    /**
+     * @return the cell type whose LIMS keyword (and follower, where needed) starts at this token, or null
+     */
+    private CellType cellTypeStartingAt(List<String> tokens, int index) {
+        if (tokens == null || index < 0 || index >= tokens.size()) {
+            return null;
+        }
+
+        CellType type = CellType.fromLimsToken(tokens.get(index));
+        if (type == null || !type.requiresLimsFollower()) {
+            return type;
+        }
+
+        if (index + 1 >= tokens.size()) {
+            return null;
+        }
+        String next = tokens.get(index + 1);
+        return type.acceptsLimsFollower(next, 0, next.length()) ? type : null;
     }
 
     private String normalizeName(String name) {
@@ -268,7 +422,7 @@ public class TXTFileParser implements FileParser {
 
     /**
      * Parse the content directly from a String input.
-     * This can be used for parsing from GUI input.
+     * This can be used for parsing from GUI input. Large pastes (such as backfills) are split across cores.
      *
      * @param content to parse
      */
@@ -276,7 +430,7 @@ public class TXTFileParser implements FileParser {
         if (content == null || content.isEmpty()) {
             return;
         }
-        parse(content); // Call the existing parse method to handle the content
+        parseParallel(content); // Falls back to the existing parse method for small content
     }
 
 
@@ -284,4 +438,105 @@ public class TXTFileParser implements FileParser {
     public List<HICData> getHICData() {
         return hicData;
     }
+
+    /**
+     * Line-by-line state shared by the whole-string and streaming entry points. A record is only released to
+     * the sink once the next record starts (or input ends), so # cancellation lines always reach the record
+     * they follow.
+     */
+    private class RecordAssembler implements IntSupplier {
+
+        private final Consumer<HICData> sink;
+        private final List<String> leadingCancellations;
+        private final TXTLineScanner scanner = new TXTLineScanner();
+        private int IDCounter = 0;
+        private HICData lastRecord;
+
+        /**
+         * @param sink                 receives each finished record
+         * @param leadingCancellations collects # lines seen before the first record, or null to drop them
+         */
+        private RecordAssembler(Consumer<HICData> sink, List<String> leadingCancellations) {
+            this.sink = sink;
+            this.leadingCancellations = leadingCancellations;
+        }
+
+        private void accept(String line) {
+            String trimmedLine = line.trim();
+
+            // If the line starts with a hashtag, append that line to the current record
+            if (trimmedLine.startsWith("#")) {
+                if (lastRecord != null) {
+                    lastRecord.addRecentlyCancelledRequest(trimmedLine);
+                } else if (leadingCancellations != null) {
+                    leadingCancellations.add(trimmedLine);
+                }
+                return;
+            }
+
+            HICData record = parseRecordLine(line, scanner, this);
+            if (record != null) {
+                if (lastRecord != null) {
+                    sink.accept(lastRecord);
+                }
+                lastRecord = record;
+            }
+        }
+
+        @Override
+        public int getAsInt() {
+            return ++IDCounter;
+        }
+
+        private void finish() {
+            if (lastRecord != null) {
+                sink.accept(lastRecord);
+                lastRecord = null;
+            }
+        }
+    }
+
+    /**
+     * Records parsed from one chunk of the content, with IDs numbered from the start of the chunk
+     */
+    private static class ChunkResult {
+
+        private final List<HICData> records = new ArrayList<>();
+        private final List<String> leadingCancellations = new ArrayList<>();
+        private int idCount;
+        private RuntimeException failure;
+    }
+
+    /**
+     * Parses the lines between two offsets of the content
+     */
+    private class ChunkParseTask extends RecursiveTask<ChunkResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String content;
+        private final int from;
+        private final int to;
+
+        private ChunkParseTask(String content, int from, int to) {
+            this.content = content;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            ChunkResult result = new ChunkResult();
+            RecordAssembler assembler = new RecordAssembler(result.records::add, result.leadingCancellations);
+            try {
+                assembleLines(content, from, to, assembler);
+                assembler.finish();
+            } catch (RuntimeException e) {
+                // Rethrown while stitching, so the first failure in file order wins
+                result.failure = e;
+            }
+            result.idCount = assembler.IDCounter;
+            return result;
+        }
+    }
 }
@@ -0,0 +1,223 @@
+package hic.datamanagement;
+
+import hic.util.CellType;
+import hic.util.FieldDecoders;
+
+import java.time.LocalDateTime;
+
+/**
+ * Single-pass scanner for one HIC input line. Field boundaries are kept as offsets into the line, so the
+ * request id, timestamp, cell type and max/min pair are decoded without regex or per-token strings.
+ * Produces the same values as splitting the line on tabs/spaces and inspecting the tokens.
+ * An instance is reused line after line and is not thread safe.
+ */
+final class TXTLineScanner {
+
+    /** Returned by tokenize when the line has to go through the token-list parser instead */
+    static final int NEEDS_FALLBACK = -1;
+
+    private static final int FIXED_FIELDS = 5;
+
+    private String line;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count;
+
+    private final StringBuilder nameBuilder = new StringBuilder(48);
+
+    private double maxRequest;
+    private double minRequest;
+
+    /**
+     * Find the field boundaries of a line. The first five fields are always kept, after that scanning stops
+     * at the I, E_A or E_C status marker.
+     *
+     * @param line to scan
+     * @return number of fields kept, or NEEDS_FALLBACK when the line starts with a separator or a kept field
+     * holds a control character (cases where trimming and whitespace rules need the token-list parser)
+     */
+    int tokenize(String line) {
+        this.line = line;
+        count = 0;
+
+        int length = line.length();
+        if (length > 0 && isSeparator(line.charAt(0))) {
+            return NEEDS_FALLBACK;
+        }
+
+        int index = 0;
+        while (index < length) {
+            while (index < length && isSeparator(line.charAt(index))) {
+                index++;
+            }
+            if (index >= length) {
+                break;
+            }
+
+            int start = index;
+            boolean hasControlChar = false;
+            while (index < length) {
+                char c = line.charAt(index);
+                if (isSeparator(c)) {
+                    break;
+                }
+                if (c < ' ') {
+                    hasControlChar = true;
+                }
+                index++;
+            }
+
+            if (count >= FIXED_FIELDS && isStatusMarker(start, index)) {
+                break;
+            }
+            if (hasControlChar) {
+                return NEEDS_FALLBACK;
+            }
+            addField(start, index);
+        }
+        return count;
+    }
+
+    /**
+     * @return the request id in the first field
+     * @throws NumberFormatException if the first field is not an integer
+     */
+    int requestId() {
+        return FieldDecoders.parseInt(line, starts[0], ends[0]);
+    }
+
+    /**
+     * @return the request date from the second and third fields
+     */
+    LocalDateTime requestDate() {
+        return FieldDecoders.parseDateTime(line, starts[1], ends[1], starts[2], ends[2]);
+    }
+
+    /**
+     * @return the fourth field plus every following field up to the first cell type, joined by single spaces
+     */
+    String name() {
+        nameBuilder.setLength(0);
+        nameBuilder.append(line, starts[3], ends[3]);
+        for (int i = 4; i < count; i++) {
+            if (isCellTypeStart(i)) {
+                break;
+            }
+            nameBuilder.append(' ').append(line, starts[i], ends[i]);
+        }
+        return nameBuilder.toString();
+    }
+
+    /**
+     * @return canonical label of the last cell type on the line, or null if none was found
+     */
+    String cellType() {
+        CellType cellType = null;
+        for (int i = 0; i < count; i++) {
+            CellType type = cellTypeStartingAt(i);
+            if (type != null) {
+                cellType = type;
+            }
+        }
+        return cellType == null ? null : cellType.getLabel();
+    }
+
+    /**
+     * Look for the first pair of adjacent numeric fields after the name and keep them as max and min
+     */
+    void scanMaxAndMin() {
+        maxRequest = 0.0;
+        minRequest = 0.0;
+        for (int i = 4; i < count - 1; i++) {
+            if (isNumeric(i) && isNumeric(i + 1)) {
+                maxRequest = FieldDecoders.parseDecimal(line, starts[i], ends[i]);
+                minRequest = FieldDecoders.parseDecimal(line, starts[i + 1], ends[i + 1]);
+                return;
+            }
+        }
+    }
+
+    double maxRequest() {
+        return maxRequest;
+    }
+
+    double minRequest() {
+        return minRequest;
+    }
+
+    private boolean isCellTypeStart(int index) {
+        return cellTypeStartingAt(index) != null;
+    }
+
+    /**
+     * @return the cell type whose LIMS keyword (and follower, where needed) starts at this field, or null
+     */
+    private CellType cellTypeStartingAt(int index) {
+        CellType type = CellType.fromLimsToken(line, starts[index], ends[index]);
+        if (type == null || !type.requiresLimsFollower()) {
+            return type;
+        }
+        return index + 1 < count && type.acceptsLimsFollower(line, starts[index + 1], ends[index + 1]) ? type : null;
+    }
+
+    /**
+     * Matches -?\d+(\.\d+)? over the raw field
+     */
+    private boolean isNumeric(int index) {
+        int i = starts[index];
+        int end = ends[index];
+        if (i < end && line.charAt(i) == '-') {
+            i++;
+        }
+
+        int integerDigits = 0;
+        while (i < end && isDigit(line.charAt(i))) {
+            i++;
+            integerDigits++;
+        }
+        if (integerDigits == 0) {
+            return false;
+        }
+        if (i == end) {
+            return true;
+        }
+        if (line.charAt(i) != '.') {
+            return false;
+        }
+        i++;
+
+        int fractionDigits = 0;
+        while (i < end && isDigit(line.charAt(i))) {
+            i++;
+            fractionDigits++;
+        }
+        return fractionDigits > 0 && i == end;
+    }
+
+    private boolean isStatusMarker(int start, int end) {
+        int length = end - start;
+        if (length == 1) {
+            return line.charAt(start) == 'I';
+        }
+        return length == 3 && line.charAt(start) == 'E' && line.charAt(start + 1) == '_'
+                && (line.charAt(start + 2) == 'A' || line.charAt(start + 2) == 'C');
+    }
+
+    private void addField(int start, int end) {
+        if (count == starts.length) {
+            starts = java.util.Arrays.copyOf(starts, count * 2);
+            ends = java.util.Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,52 @@
+package hic.datamanagement;
+
+import hic.util.HICData;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A parser of a text format, which can also read content that is already in memory, e.g. pasted into the GUI
+ */
+public interface TextFileParser extends FileParser {
+
+    /**
+     * Parse the whole content into the list returned by {@link #getHICData()}
+     *
+     * @param content to parse
+     */
+    <E> void parse(String content) throws ParseException;
+
+    /**
+     * Parse records from a reader and hand each one to the sink as soon as it is complete.
+     * Nothing is buffered beyond the record currently being assembled, so getHICData() is not populated.
+     *
+     * @param reader to read from
+     * @param sink   receives every parsed record in file order
+     * @throws IOException if the reader fails
+     */
+    void parse(Reader reader, Consumer<HICData> sink) throws IOException;
+
+    /**
+     * Decode the file with the charset and read it through {@link #parse(Reader, Consumer)}
+     */
+    @Override
+    default void parse(Path path, Charset charset, Consumer<HICData> sink) throws IOException {
+        try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(Files.newInputStream(path), charset))) {
+            parse(bufferedReader, sink);
+        }
+    }
+
+    /**
+     * @return records of the last {@link #parse(String)}, null if no content has been parsed
+     */
+    List<HICData> getHICData();
+}
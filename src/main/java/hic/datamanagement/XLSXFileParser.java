@@ -0,0 +1,231 @@
+package hic.datamanagement;
+
+import hic.util.FieldDecoders;
+import hic.util.HICData;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Parses the first sheet of an XLSX order workbook with POI's event model. The sheet XML is streamed through a
+ * SAX handler one row at a time, so the workbook is never loaded as a whole. Rows are mapped by
+ * {@link SpreadsheetRowMapper}; date-formatted number cells are read as yyyy-MM-dd HH:mm:ss timestamps.
+ */
+public class XLSXFileParser implements FileParser {
+
+    /**
+     * Parse the first sheet of the workbook
+     *
+     * @param path    of the workbook
+     * @param charset ignored
+     * @param sink    receives every parsed record in sheet order
+     * @throws IOException if the file is not a readable workbook
+     */
+    @Override
+    public void parse(Path path, Charset charset, Consumer<HICData> sink) throws IOException {
+        try (OPCPackage workbook = OPCPackage.open(path.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(workbook);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(workbook);
+            StylesTable styles = reader.getStylesTable();
+            boolean date1904 = usesDate1904(reader);
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+
+            SpreadsheetRowMapper mapper = new SpreadsheetRowMapper(sink);
+            try (InputStream sheet = sheets.next()) {
+                XMLReader xmlReader = XMLHelper.newXMLReader();
+                xmlReader.setContentHandler(new SheetHandler(sharedStrings, styles, date1904, mapper));
+                xmlReader.parse(new InputSource(sheet));
+            }
+            mapper.finish();
+        } catch (SAXException e) {
+            if (e.getException() instanceof IOException) {
+                throw (IOException) e.getException();
+            }
+            throw new IOException("Could not read workbook " + path.getFileName() + ": " + e.getMessage(), e);
+        } catch (OpenXML4JException | ParserConfigurationException e) {
+            throw new IOException("Could not open workbook " + path.getFileName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return true if the workbook counts dates from 1904 (set by older Mac versions of Excel)
+     */
+    private static boolean usesDate1904(XSSFReader reader) throws IOException, OpenXML4JException, SAXException,
+            ParserConfigurationException {
+        boolean[] date1904 = {false};
+        try (InputStream workbookData = reader.getWorkbookData()) {
+            XMLReader xmlReader = XMLHelper.newXMLReader();
+            xmlReader.setContentHandler(new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if ("workbookPr".equals(elementName(localName, qName))) {
+                        String value = attributes.getValue("date1904");
+                        date1904[0] = "1".equals(value) || "true".equalsIgnoreCase(value);
+                    }
+                }
+            });
+            xmlReader.parse(new InputSource(workbookData));
+        }
+        return date1904[0];
+    }
+
+    private static String elementName(String localName, String qName) {
+        if (localName != null && !localName.isEmpty()) {
+            return localName;
+        }
+        int colon = qName.indexOf(':');
+        return colon < 0 ? qName : qName.substring(colon + 1);
+    }
+
+    /**
+     * Collects the cell text of each sheet row and hands the row to the mapper when it ends
+     */
+    private static class SheetHandler extends DefaultHandler {
+
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final StylesTable styles;
+        private final boolean date1904;
+        private final SpreadsheetRowMapper mapper;
+        private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+        private final StringBuilder text = new StringBuilder();
+
+        private List<String> cells;
+        private int column;
+        private String cellType;
+        private int cellStyle;
+        private boolean collecting;
+        private boolean inPhonetic;
+
+        private SheetHandler(ReadOnlySharedStringsTable sharedStrings, StylesTable styles, boolean date1904,
+                             SpreadsheetRowMapper mapper) {
+            this.sharedStrings = sharedStrings;
+            this.styles = styles;
+            this.date1904 = date1904;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (elementName(localName, qName)) {
+                case "row":
+                    cells = new ArrayList<>();
+                    column = 0;
+                    break;
+                case "c":
+                    String reference = attributes.getValue("r");
+                    if (reference != null) {
+                        column = new CellReference(reference).getCol();
+                    }
+                    cellType = attributes.getValue("t");
+                    String style = attributes.getValue("s");
+                    cellStyle = style == null ? -1 : Integer.parseInt(style);
+                    text.setLength(0);
+                    break;
+                case "rPh":
+                    inPhonetic = true;
+                    break;
+                case "v":
+                case "t":
+                    collecting = !inPhonetic;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (elementName(localName, qName)) {
+                case "v":
+                case "t":
+                    collecting = false;
+                    break;
+                case "rPh":
+                    inPhonetic = false;
+                    break;
+                case "c":
+                    while (cells.size() < column) {
+                        cells.add("");
+                    }
+                    cells.add(cellValue());
+                    column++;
+                    break;
+                case "row":
+                    try {
+                        mapper.accept(cells);
+                    } catch (IOException e) {
+                        throw new SAXException(e);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                text.append(ch, start, length);
+            }
+        }
+
+        private String cellValue() {
+            String value = text.toString();
+            if (cellType == null || "n".equals(cellType)) {
+                if (!value.isEmpty() && isDateStyle(cellStyle)) {
+                    double serial = FieldDecoders.parseDecimal(value);
+                    return FieldDecoders.DATE_TIME_FORMATTER.format(DateUtil.getLocalDateTime(serial, date1904, true));
+                }
+                return value;
+            }
+
+            switch (cellType) {
+                case "s":
+                    return value.isEmpty() ? "" : sharedStrings.getItemAt(Integer.parseInt(value)).getString();
+                case "b":
+                    return "1".equals(value) ? "TRUE" : "FALSE";
+                default:
+                    // inlineStr, str (formula text) and e (error) cells hold their text directly
+                    return value;
+            }
+        }
+
+        private boolean isDateStyle(int styleIndex) {
+            if (styleIndex < 0 || styles == null) {
+                return false;
+            }
+            return dateStyles.computeIfAbsent(styleIndex, index -> {
+                XSSFCellStyle style = styles.getStyleAt(index);
+                return style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+            });
+        }
+    }
+}
@@ -31,7 +31,7 @@ public class CompleteFulfillmentReport {
     public int totalLineCount() {
         int total = 0;
         for (FulfillmentReport report : reports) {
-            total += report.sortedLines().size();
+            total += report.lineCount();
         }
         return total;
     }
@@ -65,6 +65,10 @@ public class FulfillmentReport {
         return sorted;
     }
 
+    public int lineCount() {
+        return lines.size();
+    }
+
     public int scrapedFulfilledRows() {
         return scrapedFulfilledRows;
     }
@@ -14,14 +14,31 @@ public class FulfillmentStats {
     private final Map<String, StatLine> lines;
     private final int scrapedFulfilledRows;
     private final int scrapedCancelledRows;
+    private final OrderReconciliation reconciliation;
 
     public FulfillmentStats(LocalDate startDate, LocalDate endDate, Map<String, StatLine> lines,
                             int scrapedFulfilledRows, int scrapedCancelledRows) {
+        this(startDate, endDate, lines, scrapedFulfilledRows, scrapedCancelledRows, null);
+    }
+
+    /**
+     * @param reconciliation today's orders against the same scraped rows, or null if not checked
+     */
+    public FulfillmentStats(LocalDate startDate, LocalDate endDate, Map<String, StatLine> lines,
+                            int scrapedFulfilledRows, int scrapedCancelledRows, OrderReconciliation reconciliation) {
         this.startDate = startDate;
         this.endDate = endDate;
         this.lines = new LinkedHashMap<>(lines);
         this.scrapedFulfilledRows = scrapedFulfilledRows;
         this.scrapedCancelledRows = scrapedCancelledRows;
+        this.reconciliation = reconciliation;
+    }
+
+    /**
+     * @return today's orders checked against the scraped Month View rows, or null if not checked
+     */
+    public OrderReconciliation getReconciliation() {
+        return reconciliation;
     }
 
     public String toDisplayText() {
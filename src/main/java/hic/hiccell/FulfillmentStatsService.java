@@ -1,5 +1,6 @@
 package hic.hiccell;
 
+import hic.util.CellType;
 import hic.util.HICData;
 
 import java.time.Clock;
@@ -37,7 +38,7 @@ public class FulfillmentStatsService {
         Set<String> requestedKeys = new HashSet<>();
         for (HICData order : todayOrders) {
             String normalizedCellType = normalizeCellType(order.getCellType());
-            String key = key(order.getName(), normalizedCellType);
+            String key = requesterKey(order.getName(), normalizedCellType);
             requestedKeys.add(key);
             stats.putIfAbsent(key, new MutableStatLine(order.getName(), normalizedCellType));
         }
@@ -51,11 +52,12 @@ public class FulfillmentStatsService {
 
         Map<String, FulfillmentStats.StatLine> output = new LinkedHashMap<>();
         for (MutableStatLine line : stats.values()) {
-            output.put(key(line.orderedBy, line.cellType),
+            output.put(requesterKey(line.orderedBy, line.cellType),
                     new FulfillmentStats.StatLine(line.orderedBy, line.cellType, line.fulfilled, line.cancelled, line.filledThisWeek));
         }
 
-        return new FulfillmentStats(startDate, endDate, output, fulfilled.size(), cancelled.size());
+        return new FulfillmentStats(startDate, endDate, output, fulfilled.size(), cancelled.size(),
+                OrderReconciliation.of(monthViewRows));
     }
 
     private void countRows(Map<String, MutableStatLine> stats, Set<String> requestedKeys,
@@ -73,7 +75,7 @@ public class FulfillmentStatsService {
             }
 
             String normalizedCellType = normalizeCellType(row.cellType());
-            String key = key(row.orderedBy(), normalizedCellType);
+            String key = requesterKey(row.orderedBy(), normalizedCellType);
             if (!requestedKeys.contains(key)) {
                 continue;
             }
@@ -108,29 +110,21 @@ public class FulfillmentStatsService {
         if (cellType == null) {
             return "";
         }
-        String normalized = cellType.trim().replaceAll("\\s+", " ");
-        if (normalized.equalsIgnoreCase("CD4+ T")) {
-            return "CD4+";
+        CellType knownCellType = CellType.resolve(cellType);
+        if (knownCellType != null) {
+            return knownCellType.getLabel();
         }
-        if (normalized.equalsIgnoreCase("CD8+ T")) {
-            return "CD8+";
-        }
-        if (normalized.equalsIgnoreCase("Total T Cells")) {
-            return "Total T";
-        }
-        if (normalized.equalsIgnoreCase("Unpurified")
-                || normalized.equalsIgnoreCase("Unpurified Apheresis Product")
-                || normalized.equalsIgnoreCase("Unpurified Apheresis Products")) {
-            return "Unpurified Apheresis";
-        }
-        return normalized;
+        return cellType.trim().replaceAll("\\s+", " ");
     }
 
-    private String key(String orderedBy, String cellType) {
+    /**
+     * @return first and last name and canonical cell type, the key fulfillment rows are matched to orders by
+     */
+    static String requesterKey(String orderedBy, String cellType) {
         return normalizePerson(orderedBy) + "|" + normalizeCellType(cellType).toLowerCase();
     }
 
-    private String normalizePerson(String name) {
+    private static String normalizePerson(String name) {
         if (name == null) {
             return "";
         }
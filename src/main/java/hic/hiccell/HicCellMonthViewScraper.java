@@ -5,6 +5,7 @@ import com.microsoft.playwright.Locator;
 import com.microsoft.playwright.Page;
 import com.microsoft.playwright.Playwright;
 import com.microsoft.playwright.options.AriaRole;
+import hic.util.FieldDecoders;
 
 import java.nio.file.Path;
 import java.nio.file.Files;
@@ -427,7 +428,7 @@ public class HicCellMonthViewScraper {
 
         try {
             int requestId = parseRequestId(cells.nth(0).textContent());
-            LocalDate collectionDate = LocalDate.parse(clean(cells.nth(1).textContent()));
+            LocalDate collectionDate = parseDate(cells.nth(1).textContent());
             String orderedBy = clean(cells.nth(2).textContent());
             String labOwner = clean(cells.nth(3).textContent());
             String cellType = clean(cells.nth(4).textContent());
@@ -452,7 +453,7 @@ public class HicCellMonthViewScraper {
 
         try {
             int requestId = parseRequestId(cells.get(0));
-            LocalDate collectionDate = LocalDate.parse(clean(cells.get(1)));
+            LocalDate collectionDate = parseDate(cells.get(1));
             String orderedBy = clean(cells.get(2));
             String labOwner = clean(cells.get(3));
             String cellType = clean(cells.get(4));
@@ -469,20 +470,59 @@ public class HicCellMonthViewScraper {
         }
     }
 
+    private LocalDate parseDate(String value) {
+        // A missing cell reads as an empty one, which fails to parse like any other bad date
+        return FieldDecoders.parseIsoDate(value == null ? "" : value);
+    }
+
     private int parseRequestId(String value) {
-        String digits = clean(value).replaceAll("[^0-9]", "");
-        if (digits.isEmpty()) {
+        // The id is every digit in the cell, e.g. "#12345" or "12 345"
+        int digits = 0;
+        int requestId = 0;
+        int length = value == null ? 0 : value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                requestId = requestId * 10 + (c - '0');
+                digits++;
+            }
+        }
+
+        if (digits == 0) {
             throw new NumberFormatException("Missing request id");
         }
-        return Integer.parseInt(digits);
+        if (digits > 9) {
+            return Integer.parseInt(value.replaceAll("[^0-9]", ""));
+        }
+        return requestId;
     }
 
     private double parseDouble(String value) {
-        String cleaned = clean(value).replace(",", "");
-        if (cleaned.isEmpty()) {
+        if (value == null) {
+            return 0.0;
+        }
+
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
             return 0.0;
         }
-        return Double.parseDouble(cleaned);
+
+        // Thousands separators and odd spacing go through the cleanup first
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c <= ' ') {
+                String cleaned = clean(value).replace(",", "");
+                return cleaned.isEmpty() ? 0.0 : Double.parseDouble(cleaned);
+            }
+        }
+        return FieldDecoders.parseDecimal(value, start, end);
     }
 
     private String clean(String value) {
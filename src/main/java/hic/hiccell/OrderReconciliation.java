@@ -0,0 +1,144 @@
+package hic.hiccell;
+
+import hic.util.CancelledRequest;
+import hic.util.HICData;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Today's orders checked against the scraped Month View rows. The Live Cells and Cancelled rows are put in hash
+ * maps by request id, and by requester and cell type for cancellations, once; each order is then looked up by
+ * its order number, so reconciling n orders against m rows takes O(n + m).
+ * <p>
+ * An order is
+ * <ul>
+ *     <li>{@link Status#DELIVERED} if a Live Cells row has its order number,</li>
+ *     <li>{@link Status#CANCELLED} if a Cancelled row has its order number,</li>
+ *     <li>{@link Status#RESUBMISSION} if one of its # lines names a scraped cancelled request, or the requester
+ *     had the same cell type cancelled on or before the request date,</li>
+ *     <li>{@link Status#NEW} otherwise.</li>
+ * </ul>
+ */
+public final class OrderReconciliation {
+
+    private final Map<Integer, HicCellOrderRecord> deliveredById = new HashMap<>();
+    private final Map<Integer, HicCellOrderRecord> cancelledById = new HashMap<>();
+    // Earliest cancellation per requester and cell type
+    private final Map<String, HicCellOrderRecord> firstCancelledByRequester = new HashMap<>();
+
+    private OrderReconciliation() {
+    }
+
+    /**
+     * @param monthViewRows scraped Live Cells and Cancelled rows
+     * @return the rows indexed for lookups
+     */
+    public static OrderReconciliation of(HicCellMonthViewRows monthViewRows) {
+        OrderReconciliation reconciliation = new OrderReconciliation();
+        for (HicCellOrderRecord row : monthViewRows.liveCells()) {
+            reconciliation.deliveredById.putIfAbsent(row.requestId(), row);
+        }
+        for (HicCellOrderRecord row : monthViewRows.cancelled()) {
+            reconciliation.cancelledById.putIfAbsent(row.requestId(), row);
+            reconciliation.firstCancelledByRequester.merge(
+                    FulfillmentStatsService.requesterKey(row.orderedBy(), row.cellType()), row,
+                    (kept, next) -> isBefore(next.collectionDate(), kept.collectionDate()) ? next : kept);
+        }
+        return reconciliation;
+    }
+
+    /**
+     * @return where the order stands in the Month View, with the row that decided it
+     */
+    public Match match(HICData order) {
+        HicCellOrderRecord delivered = deliveredById.get(order.getOrderNumber());
+        if (delivered != null) {
+            return new Match(Status.DELIVERED, delivered);
+        }
+        HicCellOrderRecord cancelled = cancelledById.get(order.getOrderNumber());
+        if (cancelled != null) {
+            return new Match(Status.CANCELLED, cancelled);
+        }
+
+        for (CancelledRequest cancelledRequest : order.getRecentlyCancelled()) {
+            HicCellOrderRecord listed = cancelledById.get(cancelledRequest.orderNumber());
+            if (listed != null) {
+                return new Match(Status.RESUBMISSION, listed);
+            }
+        }
+        HicCellOrderRecord earlier = firstCancelledByRequester.get(
+                FulfillmentStatsService.requesterKey(order.getName(), order.getCellType()));
+        if (earlier != null && (order.getRequestDate() == null || earlier.collectionDate() == null
+                || !earlier.collectionDate().isAfter(order.getRequestDate().toLocalDate()))) {
+            return new Match(Status.RESUBMISSION, earlier);
+        }
+        return new Match(Status.NEW, null);
+    }
+
+    public Status statusOf(HICData order) {
+        return match(order).status();
+    }
+
+    /**
+     * @return number of orders in each status, every status present
+     */
+    public Map<Status, Integer> countByStatus(List<HICData> orders) {
+        Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        for (Status status : Status.values()) {
+            counts.put(status, 0);
+        }
+        for (HICData order : orders) {
+            counts.merge(statusOf(order), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static boolean isBefore(LocalDate date, LocalDate other) {
+        if (date == null || other == null) {
+            return date != null;
+        }
+        return date.isBefore(other);
+    }
+
+    public enum Status {
+        DELIVERED("Delivered"),
+        CANCELLED("Cancelled"),
+        RESUBMISSION("Resubmission"),
+        NEW("New");
+
+        private final String label;
+
+        Status(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * @param status of the order
+     * @param row    Month View row that decided the status, null for NEW
+     */
+    public record Match(Status status, HicCellOrderRecord row) {
+
+        /**
+         * @return e.g. Resubmission of #52094 (2026-01-27), or just the status when there is no row
+         */
+        public String toDisplayText() {
+            if (row == null) {
+                return status.getLabel();
+            }
+            String date = row.collectionDate() == null ? "" : " (" + row.collectionDate() + ")";
+            return switch (status) {
+                case RESUBMISSION -> status.getLabel() + " of #" + row.requestId() + date;
+                default -> status.getLabel() + date;
+            };
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package hic.logging;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The cell styles and fonts of one workbook, each created the first time it is asked for and shared after that.
+ * Styles are keyed by the style they are based on and the attributes set on top of it, so asking for the same
+ * style for every cell of a sheet adds one style record to the file, not one per cell.
+ */
+final class CellStyleRegistry {
+
+    static final short TITLE_POINTS = 14;
+    static final short GROUP_POINTS = 12;
+    // Size of a font created by the workbook without setting one
+    static final short DEFAULT_POINTS = 11;
+
+    private static final int NO_BASE = -1;
+    private static final short NO_FILL = -1;
+
+    private final Workbook workbook;
+    private final Map<FontKey, Font> fonts = new HashMap<>();
+    private final Map<StyleKey, CellStyle> styles = new HashMap<>();
+
+    CellStyleRegistry(Workbook workbook) {
+        this.workbook = workbook;
+    }
+
+    /**
+     * @return a font of the workbook's default face
+     */
+    Font font(boolean bold, short heightInPoints) {
+        return font(new FontKey(bold, heightInPoints));
+    }
+
+    private Font font(FontKey fontKey) {
+        return fonts.computeIfAbsent(fontKey, key -> {
+            Font font = workbook.createFont();
+            font.setBold(key.bold());
+            font.setFontHeightInPoints(key.heightInPoints());
+            return font;
+        });
+    }
+
+    CellStyle titleStyle() {
+        return fontStyle(true, TITLE_POINTS);
+    }
+
+    CellStyle headerStyle() {
+        return fontStyle(true, DEFAULT_POINTS);
+    }
+
+    CellStyle groupStyle() {
+        return fontStyle(true, GROUP_POINTS);
+    }
+
+    CellStyle fontStyle(boolean bold, short heightInPoints) {
+        return style(new StyleKey(NO_BASE, new FontKey(bold, heightInPoints), null, false, NO_FILL));
+    }
+
+    /**
+     * @param format Excel number format, e.g. 0.0%
+     */
+    CellStyle formatStyle(String format) {
+        return style(new StyleKey(NO_BASE, null, format, false, NO_FILL));
+    }
+
+    /**
+     * @return a style with only a thin border on every side
+     */
+    CellStyle borderedStyle() {
+        return style(new StyleKey(NO_BASE, null, null, true, NO_FILL));
+    }
+
+    /**
+     * @param base           style to copy, e.g. a template cell's
+     * @param bold           of the font used instead of the base's
+     * @param heightInPoints of the font used instead of the base's
+     * @param color          solid fill colour
+     * @return the base style with the font and fill
+     */
+    CellStyle highlightedStyle(CellStyle base, boolean bold, short heightInPoints, IndexedColors color) {
+        return style(new StyleKey(base.getIndex(), new FontKey(bold, heightInPoints), null, false, color.getIndex()));
+    }
+
+    private CellStyle style(StyleKey key) {
+        return styles.computeIfAbsent(key, this::createStyle);
+    }
+
+    private CellStyle createStyle(StyleKey key) {
+        CellStyle style = workbook.createCellStyle();
+        if (key.baseIndex() != NO_BASE) {
+            style.cloneStyleFrom(workbook.getCellStyleAt(key.baseIndex()));
+        }
+        if (key.font() != null) {
+            style.setFont(font(key.font()));
+        }
+        if (key.dataFormat() != null) {
+            style.setDataFormat(workbook.createDataFormat().getFormat(key.dataFormat()));
+        }
+        if (key.border()) {
+            style.setBorderBottom(BorderStyle.THIN);
+            style.setBorderTop(BorderStyle.THIN);
+            style.setBorderRight(BorderStyle.THIN);
+            style.setBorderLeft(BorderStyle.THIN);
+        }
+        if (key.fillColor() != NO_FILL) {
+            style.setFillForegroundColor(key.fillColor());
+            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        }
+        return style;
+    }
+
+    private record FontKey(boolean bold, short heightInPoints) {
+    }
+
+    // Base style by its index in the workbook, font null to keep the base's
+    private record StyleKey(int baseIndex, FontKey font, String dataFormat, boolean border, short fillColor) {
+    }
+}
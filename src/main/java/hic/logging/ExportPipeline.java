@@ -0,0 +1,190 @@
+package hic.logging;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Steps of a run, each started on a worker thread as soon as the steps it depends on have finished, so exports
+ * that only read the same orders are written at the same time. A step that fails does not stop the others; only
+ * the steps depending on it are skipped. Steps must not change data another step reads.
+ */
+public final class ExportPipeline {
+
+    private final List<Step<?>> steps = new ArrayList<>();
+    private final int threads;
+
+    /**
+     * Run on one worker thread per processor, and at least two so file writes overlap
+     */
+    public ExportPipeline() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public ExportPipeline(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param name  of the step
+     * @param work  computing a value later steps use through {@link Step#get()}
+     * @param after steps that must finish first
+     * @return the step
+     */
+    public <T> Step<T> compute(String name, Callable<T> work, Step<?>... after) {
+        return addStep(new Step<>(name, null, work, after));
+    }
+
+    /**
+     * @param name   of the step
+     * @param output file the step writes
+     * @param work   writing the file
+     * @param after  steps that must finish first
+     * @return the step
+     */
+    public Step<Void> export(String name, String output, Export work, Step<?>... after) {
+        return addStep(new Step<>(name, output, () -> {
+            work.run();
+            return null;
+        }, after));
+    }
+
+    private <T> Step<T> addStep(Step<T> step) {
+        steps.add(step);
+        return step;
+    }
+
+    /**
+     * Run every step and wait for all of them
+     *
+     * @return how each step went, in the order the steps were added
+     */
+    public List<Result> run() {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, steps.size())),
+                new WorkerThreadFactory());
+        try {
+            for (Step<?> step : steps) {
+                step.start(executor);
+            }
+
+            List<Result> results = new ArrayList<>(steps.size());
+            for (Step<?> step : steps) {
+                results.add(step.await());
+            }
+            return Collections.unmodifiableList(results);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Work that writes one output
+     */
+    @FunctionalInterface
+    public interface Export {
+        void run() throws Exception;
+    }
+
+    /**
+     * One step of a pipeline
+     */
+    public static final class Step<T> {
+
+        private final String name;
+        private final String output;
+        private final Callable<T> work;
+        private final Step<?>[] after;
+        private CompletableFuture<T> future;
+        private volatile long nanos;
+
+        private Step(String name, String output, Callable<T> work, Step<?>[] after) {
+            this.name = name;
+            this.output = output;
+            this.work = work;
+            this.after = after.clone();
+        }
+
+        private void start(ExecutorService executor) {
+            CompletableFuture<?>[] dependencies = new CompletableFuture<?>[after.length];
+            for (int i = 0; i < after.length; i++) {
+                if (after[i].future == null) {
+                    throw new IllegalStateException(name + " depends on " + after[i].name + ", which is not added before it.");
+                }
+                dependencies[i] = after[i].future;
+            }
+
+            future = CompletableFuture.allOf(dependencies).handleAsync((ignored, dependencyFailure) -> {
+                if (dependencyFailure != null) {
+                    throw new CompletionException(new IllegalStateException("Skipped because " + failedDependency() + " failed."));
+                }
+                long start = System.nanoTime();
+                try {
+                    return work.call();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                } finally {
+                    nanos = System.nanoTime() - start;
+                }
+            }, executor);
+        }
+
+        private String failedDependency() {
+            for (Step<?> step : after) {
+                if (step.future.isCompletedExceptionally()) {
+                    return step.name;
+                }
+            }
+            return "a previous step";
+        }
+
+        private Result await() {
+            Exception error = null;
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                error = e.getCause() instanceof Exception cause ? cause : e;
+            }
+            return new Result(name, output, nanos / 1_000_000, error);
+        }
+
+        /**
+         * @return the value the step computed, waiting for it if needed; only call it from steps that run after
+         * this one
+         */
+        public T get() {
+            return future.join();
+        }
+    }
+
+    /**
+     * @param name   of the step
+     * @param output file the step writes, null for a step that only computes
+     * @param millis time the step took, 0 if it was skipped
+     * @param error  why the step failed or was skipped, null if it succeeded
+     */
+    public record Result(String name, String output, long millis, Exception error) {
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "hic-export-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
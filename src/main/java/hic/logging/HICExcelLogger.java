@@ -6,11 +6,19 @@ import hic.datamanagement.FileReader;
 import hic.hiccell.CompleteFulfillmentReport;
 import hic.hiccell.FulfillmentReport;
 import hic.hiccell.FulfillmentStats;
+import hic.hiccell.OrderReconciliation;
+import hic.processor.FillPlanner;
+import hic.processor.FillPlanner.FillPlan;
 import hic.processor.HICDataNotFoundException;
+import hic.processor.LowYieldPriority;
+import hic.processor.PartitionedOrders;
+import hic.processor.PartitionedOrders.OrderRequest;
+import hic.processor.PartitionedOrders.RequesterOrders;
 import hic.processor.Processor;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import hic.util.CellType;
 import hic.util.HICData;
 import org.apache.poi.xwpf.usermodel.*;
 import org.apache.xmlbeans.XmlCursor;
@@ -22,8 +30,9 @@ import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -36,14 +45,23 @@ import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTbl;
  */
 public class HICExcelLogger {
 
+    // Exports with more rows than this are streamed to disk instead of built in memory
+    private static final int STREAMING_ROW_THRESHOLD = 10_000;
+    // Rows a streamed sheet keeps in memory before flushing them to its temp file
+    private static final int STREAMING_ROW_WINDOW = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+
     private static HICExcelLogger instance;
 
+    private final TemplateCache templateCache = new TemplateCache();
+
     /**
-     * Get an instance of the Logger clas
+     * Get an instance of the Logger clas. The logger keeps no state between exports apart from its template
+     * cache, which can be shared, so the instance can write several exports at the same time, e.g. from an
+     * {@link ExportPipeline}.
      *
      * @return the instance
      */
-    public static HICExcelLogger getInstance() {
+    public static synchronized HICExcelLogger getInstance() {
         if (instance == null) {
             instance = new HICExcelLogger();
         }
@@ -57,8 +75,8 @@ public class HICExcelLogger {
      * @param filePath         to export to
      * @param addCellTypeLabel to specify whether the sheet should have cell type labels
      */
-    public void logHICData(List<HICData> hicData, String filePath, boolean addCellTypeLabel) {
-        try (Workbook workbook = new XSSFWorkbook()) {
+    public void logHICData(List<HICData> hicData, String filePath, boolean addCellTypeLabel) throws IOException {
+        try (Workbook workbook = newWorkbook(hicData.size())) {
             Sheet sheet = workbook.createSheet("HICData");
             int rowNum = 0;
 
@@ -102,64 +120,47 @@ public class HICExcelLogger {
                 applyPrintDefaults(workbook);
                 workbook.write(fileOut);
                 System.out.println("\nHICData logged to Excel file successfully.");
-            } catch (IOException e) {
-                System.err.println("\nThe file could not be saved to that directory: " + e.getMessage());
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
 
-    public void exportCD4CD8RequestList(List<HICData> hicData, String filePath) {
+    public void exportCD4CD8RequestList(List<HICData> hicData, String filePath) throws IOException {
         exportCD4CD8RequestList(hicData, filePath, "");
     }
 
-    public void exportCD4CD8RequestList(List<HICData> hicData, String filePath, String donor) {
-        Map<String, RequesterCellOrders> requesters = new LinkedHashMap<>();
-
-        for (HICData data : hicData) {
-            if (!Objects.equals(data.getCellType(), "CD4+") && !Objects.equals(data.getCellType(), "CD8+")) {
-                continue;
-            }
-
-            String rawRequesterName = data.getName() == null ? "" : data.getName().trim();
-            String requesterName = rawRequesterName.isEmpty() ? "Unknown" : rawRequesterName;
-            String key = requesterName.toLowerCase();
-            RequesterCellOrders requester = requesters.computeIfAbsent(key, ignored -> new RequesterCellOrders(requesterName));
-            OrderRequest orderRequest = new OrderRequest(data.getOrderNumber(), data.getMaxRequest(), data.getMinRequest());
+    public void exportCD4CD8RequestList(List<HICData> hicData, String filePath, String donor) throws IOException {
+        exportCD4CD8RequestList(PartitionedOrders.of(hicData), filePath, donor);
+    }
 
-            if (Objects.equals(data.getCellType(), "CD4+")) {
-                requester.cd4Orders.add(orderRequest);
-            } else {
-                requester.cd8Orders.add(orderRequest);
-            }
-        }
+    /**
+     * Export the CD4/CD8 orders of each requester, grouped by whether they ordered CD4, CD8 or both
+     *
+     * @param partitionedOrders orders of the run, grouped by requester
+     * @param filePath          to export to
+     * @param donor             number
+     */
+    public void exportCD4CD8RequestList(PartitionedOrders partitionedOrders, String filePath, String donor) throws IOException {
+        Collection<RequesterOrders> requesters = partitionedOrders.getCd4Cd8Requesters();
 
-        try (Workbook workbook = new XSSFWorkbook()) {
+        try (Workbook workbook = newWorkbook(requesters.size())) {
             Sheet sheet = workbook.createSheet("CD4 CD8 Requests");
+            ColumnWidthTracker columnWidths = new ColumnWidthTracker(sheet);
 
-            CellStyle titleStyle = workbook.createCellStyle();
-            Font titleFont = workbook.createFont();
-            titleFont.setBold(true);
-            titleFont.setFontHeightInPoints((short) 14);
-            titleStyle.setFont(titleFont);
-
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerStyle.setFont(headerFont);
+            CellStyleRegistry styles = new CellStyleRegistry(workbook);
+            CellStyle titleStyle = styles.titleStyle();
+            CellStyle headerStyle = styles.headerStyle();
 
             int rowNum = 0;
-            Row titleRow = sheet.createRow(rowNum++);
+            Row titleRow = columnWidths.createRow(rowNum++);
             Cell titleCell = titleRow.createCell(0);
             titleCell.setCellValue("CD4/CD8 Requester List");
             titleCell.setCellStyle(titleStyle);
 
-            Row dateDonorRow = sheet.createRow(rowNum++);
+            Row dateDonorRow = columnWidths.createRow(rowNum++);
             writeDateAndDonor(dateDonorRow, donor, 2, headerStyle);
 
             rowNum++;
-            Row headerRow = sheet.createRow(rowNum++);
+            Row headerRow = columnWidths.createRow(rowNum++);
             String[] headers = {"Category", "Name", "CD4 Orders (Max/Min)", "CD8 Orders (Max/Min)"};
             for (int i = 0; i < headers.length; i++) {
                 Cell cell = headerRow.createCell(i);
@@ -167,77 +168,65 @@ public class HICExcelLogger {
                 cell.setCellStyle(headerStyle);
             }
 
-            rowNum = writeRequesterGroupRows(sheet, rowNum, "CD4 & CD8", requesters.values().stream()
-                    .filter(RequesterCellOrders::hasBoth)
+            rowNum = writeRequesterGroupRows(columnWidths, rowNum, "CD4 & CD8", requesters.stream()
+                    .filter(RequesterOrders::hasBoth)
                     .toList());
             rowNum++;
-            rowNum = writeRequesterGroupRows(sheet, rowNum, "Only CD4", requesters.values().stream()
-                    .filter(RequesterCellOrders::hasOnlyCd4)
+            rowNum = writeRequesterGroupRows(columnWidths, rowNum, "Only CD4", requesters.stream()
+                    .filter(RequesterOrders::hasOnlyCd4)
                     .toList());
             rowNum++;
-            writeRequesterGroupRows(sheet, rowNum, "Only CD8", requesters.values().stream()
-                    .filter(RequesterCellOrders::hasOnlyCd8)
+            writeRequesterGroupRows(columnWidths, rowNum, "Only CD8", requesters.stream()
+                    .filter(RequesterOrders::hasOnlyCd8)
                     .toList());
 
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-            }
+            columnWidths.autoSizeColumns(headers.length);
 
             try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
                 applyPrintDefaults(workbook);
                 workbook.write(fileOut);
                 System.out.println("\nCD4/CD8 requester list exported successfully.");
-            } catch (IOException e) {
-                System.err.println("\nThe file could not be saved to that directory: " + e.getMessage());
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
 
-    public void exportLowYieldPriorityList(List<HICData> hicData, String filePath) {
+    public void exportLowYieldPriorityList(List<HICData> hicData, String filePath) throws IOException {
         exportLowYieldPriorityList(hicData, filePath, null, "");
     }
 
-    public void exportLowYieldPriorityList(List<HICData> hicData, String filePath, FulfillmentStats fulfillmentStats) {
+    public void exportLowYieldPriorityList(List<HICData> hicData, String filePath, FulfillmentStats fulfillmentStats) throws IOException {
         exportLowYieldPriorityList(hicData, filePath, fulfillmentStats, "");
     }
 
     public void exportLowYieldPriorityList(List<HICData> hicData, String filePath,
-                                           FulfillmentStats fulfillmentStats, String donor) {
-        List<String> cellTypeOrder = List.of(
-                "CD8+", "CD4+", "B Cells", "NK Cells", "Monocytes", "PBMC", "Total T",
-                "Unpurified Apheresis", "Top Layer Ficoll", "Bottom Layer Ficoll"
-        );
+                                           FulfillmentStats fulfillmentStats, String donor) throws IOException {
+        exportLowYieldPriorityList(PartitionedOrders.of(hicData), filePath, fulfillmentStats, donor);
+    }
 
-        Map<String, List<HICData>> byCellType = hicData.stream()
-                .collect(Collectors.groupingBy(HICData::getCellType, LinkedHashMap::new, Collectors.toCollection(ArrayList::new)));
+    /**
+     * Export each cell type's orders ranked by the requester's recent fulfillment, CD4/CD8 and other cell
+     * types on separate sheets
+     *
+     * @param partitionedOrders orders of the run, grouped by cell type and requester
+     * @param filePath          to export to
+     * @param fulfillmentStats  recent fulfillment per requester and cell type, or null if unavailable
+     * @param donor             number
+     */
+    public void exportLowYieldPriorityList(PartitionedOrders partitionedOrders, String filePath,
+                                           FulfillmentStats fulfillmentStats, String donor) throws IOException {
+        Map<String, List<HICData>> byCellType = partitionedOrders.getOrdersByCellType();
 
         List<String> orderedCellTypes = new ArrayList<>(byCellType.keySet());
         orderedCellTypes.sort(Comparator
-                .comparingInt((String cellType) -> {
-                    int index = cellTypeOrder.indexOf(cellType);
-                    return index >= 0 ? index : cellTypeOrder.size();
-                })
+                .comparingInt((String cellType) -> LowYieldPriority.cellTypeRank(cellType))
                 .thenComparing(Comparator.naturalOrder()));
+        int orderCount = byCellType.values().stream().mapToInt(List::size).sum();
 
-        try (Workbook workbook = new XSSFWorkbook()) {
-            CellStyle titleStyle = workbook.createCellStyle();
-            Font titleFont = workbook.createFont();
-            titleFont.setBold(true);
-            titleFont.setFontHeightInPoints((short) 14);
-            titleStyle.setFont(titleFont);
-
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerStyle.setFont(headerFont);
-
-            CellStyle groupStyle = workbook.createCellStyle();
-            Font groupFont = workbook.createFont();
-            groupFont.setBold(true);
-            groupFont.setFontHeightInPoints((short) 12);
-            groupStyle.setFont(groupFont);
+        try (Workbook workbook = newWorkbook(orderCount)) {
+            CellStyleRegistry styles = new CellStyleRegistry(workbook);
+            CellStyle titleStyle = styles.titleStyle();
+            CellStyle headerStyle = styles.headerStyle();
+            CellStyle groupStyle = styles.groupStyle();
 
             String[] headers = {
                     "Rank", "Order #", "Name", "Request Date", "Max", "Min",
@@ -247,14 +236,17 @@ public class HICExcelLogger {
                     "Rank", "Order #", "Name", "Request Date", "Max", "Min",
                     "3-Week Fulfillment", "Filled this Week?", "CD4/CD8 Order Type"
             };
-            Map<String, RequesterCellOrders> cd4Cd8OrderTypes = buildCd4Cd8OrderTypes(hicData);
+            if (fulfillmentStats != null && fulfillmentStats.getReconciliation() != null) {
+                headers = withMonthViewColumn(headers);
+                cd4Cd8Headers = withMonthViewColumn(cd4Cd8Headers);
+            }
 
             writeLowYieldPrioritySheet(
                     workbook,
                     "CD4 CD8 Requests",
                     "Low Yield Priority - CD4/CD8 Requests",
                     orderedCellTypes.stream()
-                            .filter(cellType -> Objects.equals(cellType, "CD4+") || Objects.equals(cellType, "CD8+"))
+                            .filter(HICExcelLogger::isCd4OrCd8Label)
                             .toList(),
                     byCellType,
                     fulfillmentStats,
@@ -262,7 +254,7 @@ public class HICExcelLogger {
                     headerStyle,
                     groupStyle,
                     cd4Cd8Headers,
-                    cd4Cd8OrderTypes,
+                    partitionedOrders,
                     donor
             );
 
@@ -271,7 +263,7 @@ public class HICExcelLogger {
                     "Other Requests",
                     "Low Yield Priority - Other Requests",
                     orderedCellTypes.stream()
-                            .filter(cellType -> !Objects.equals(cellType, "CD4+") && !Objects.equals(cellType, "CD8+"))
+                            .filter(cellType -> !isCd4OrCd8Label(cellType))
                             .toList(),
                     byCellType,
                     fulfillmentStats,
@@ -287,29 +279,113 @@ public class HICExcelLogger {
                 applyPrintDefaults(workbook);
                 workbook.write(fileOut);
                 System.out.println("\nLow-yield priority list exported successfully.");
-            } catch (IOException e) {
-                System.err.println("\nThe file could not be saved to that directory: " + e.getMessage());
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
 
-    public void exportFulfillmentReport(FulfillmentReport report, String filePath) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            CellStyle titleStyle = workbook.createCellStyle();
-            Font titleFont = workbook.createFont();
-            titleFont.setBold(true);
-            titleFont.setFontHeightInPoints((short) 14);
-            titleStyle.setFont(titleFont);
+    /**
+     * Export a donor fill plan: the volume available and used, then every order in priority order with the
+     * request the plan fills and the apheresis it takes
+     *
+     * @param plan     from {@link FillPlanner}
+     * @param filePath to export to
+     * @param donor    number
+     */
+    public void exportFillPlan(FillPlan plan, String filePath, String donor) throws IOException {
+        try (Workbook workbook = newWorkbook(plan.lines().size())) {
+            CellStyleRegistry styles = new CellStyleRegistry(workbook);
+            CellStyle titleStyle = styles.titleStyle();
+            CellStyle headerStyle = styles.headerStyle();
+            CellStyle volumeStyle = styles.formatStyle("0.00");
+
+            Sheet sheet = workbook.createSheet("Fill Plan");
+            ColumnWidthTracker columnWidths = new ColumnWidthTracker(sheet);
+            int rowNum = 0;
+
+            Row titleRow = columnWidths.createRow(rowNum++);
+            Cell titleCell = titleRow.createCell(0);
+            titleCell.setCellValue("Donor Fill Plan");
+            titleCell.setCellStyle(titleStyle);
+
+            Row dateDonorRow = columnWidths.createRow(rowNum++);
+            writeDateAndDonor(dateDonorRow, donor, 2, headerStyle);
+
+            rowNum++;
+
+            Object[][] totals = {
+                    {"Apheresis Available", plan.availableVolume()},
+                    {"Apheresis Planned", plan.plannedVolume()},
+                    {"Apheresis Left", plan.getRemainingVolume()},
+                    {"Orders at Max", plan.count(FillPlanner.Fill.MAX)},
+                    {"Orders at Min", plan.count(FillPlanner.Fill.MIN)},
+                    {"Orders Unfilled", plan.count(FillPlanner.Fill.UNFILLED)},
+                    {"Not from Apheresis", plan.count(FillPlanner.Fill.NOT_APHERESIS)}
+            };
+            for (Object[] total : totals) {
+                Row row = columnWidths.createRow(rowNum++);
+                Cell labelCell = row.createCell(0);
+                labelCell.setCellValue((String) total[0]);
+                labelCell.setCellStyle(headerStyle);
+                Cell valueCell = row.createCell(1);
+                if (total[1] instanceof Double volume) {
+                    valueCell.setCellValue(volume);
+                    valueCell.setCellStyle(volumeStyle);
+                } else {
+                    valueCell.setCellValue((Integer) total[1]);
+                }
+            }
 
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerStyle.setFont(headerFont);
+            rowNum++;
+
+            String[] headers = {
+                    "Rank", "Order #", "Name", "Cell Type", "Request Date", "Max", "Min",
+                    "Fill", "Planned", "Factor", "Apheresis"
+            };
+            int headerRowNum = rowNum;
+            Row headerRow = columnWidths.createRow(rowNum++);
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerStyle);
+            }
+
+            for (FillPlanner.PlanLine line : plan.lines()) {
+                HICData data = line.order();
+                Row row = columnWidths.createRow(rowNum++);
+                row.createCell(0).setCellValue(line.rank());
+                row.createCell(1).setCellValue(data.getOrderNumber());
+                row.createCell(2).setCellValue(data.getName());
+                row.createCell(3).setCellValue(data.getCellType());
+                row.createCell(4).setCellValue(data.getRequestDate() == null ? "" : data.getRequestDate().toString());
+                row.createCell(5).setCellValue(data.getMaxRequest());
+                row.createCell(6).setCellValue(data.getMinRequest());
+                row.createCell(7).setCellValue(line.fill().getLabel());
+                row.createCell(8).setCellValue(line.getPlannedRequest());
+                Cell factorCell = row.createCell(9);
+                factorCell.setCellValue(line.factor());
+                factorCell.setCellStyle(volumeStyle);
+                Cell volumeCell = row.createCell(10);
+                volumeCell.setCellValue(line.volume());
+                volumeCell.setCellStyle(volumeStyle);
+            }
+
+            columnWidths.autoSizeColumns(headers.length);
+            sheet.createFreezePane(0, headerRowNum + 1);
+
+            try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
+                applyPrintDefaults(workbook);
+                workbook.write(fileOut);
+                System.out.println("\nDonor fill plan exported successfully.");
+            }
+        }
+    }
 
-            CellStyle percentStyle = workbook.createCellStyle();
-            percentStyle.setDataFormat(workbook.createDataFormat().getFormat("0.0%"));
+    public void exportFulfillmentReport(FulfillmentReport report, String filePath) throws IOException {
+        try (Workbook workbook = newWorkbook(report.lineCount())) {
+            CellStyleRegistry styles = new CellStyleRegistry(workbook);
+            CellStyle titleStyle = styles.titleStyle();
+            CellStyle headerStyle = styles.headerStyle();
+            CellStyle percentStyle = styles.formatStyle("0.0%");
 
             writeFulfillmentReportSheet(workbook, "Fulfillment Report", report, titleStyle, headerStyle, percentStyle);
 
@@ -322,20 +398,11 @@ public class HICExcelLogger {
     }
 
     public void exportCompleteFulfillmentReport(CompleteFulfillmentReport completeReport, String filePath) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            CellStyle titleStyle = workbook.createCellStyle();
-            Font titleFont = workbook.createFont();
-            titleFont.setBold(true);
-            titleFont.setFontHeightInPoints((short) 14);
-            titleStyle.setFont(titleFont);
-
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerStyle.setFont(headerFont);
-
-            CellStyle percentStyle = workbook.createCellStyle();
-            percentStyle.setDataFormat(workbook.createDataFormat().getFormat("0.0%"));
+        try (Workbook workbook = newWorkbook(completeReport.totalLineCount())) {
+            CellStyleRegistry styles = new CellStyleRegistry(workbook);
+            CellStyle titleStyle = styles.titleStyle();
+            CellStyle headerStyle = styles.headerStyle();
+            CellStyle percentStyle = styles.formatStyle("0.0%");
 
             for (FulfillmentReport report : completeReport.reports()) {
                 writeFulfillmentReportSheet(workbook, fulfillmentReportSheetName(report), report, titleStyle, headerStyle, percentStyle);
@@ -352,28 +419,29 @@ public class HICExcelLogger {
     private void writeFulfillmentReportSheet(Workbook workbook, String sheetName, FulfillmentReport report,
                                              CellStyle titleStyle, CellStyle headerStyle, CellStyle percentStyle) {
         Sheet sheet = workbook.createSheet(sheetName);
+        ColumnWidthTracker columnWidths = new ColumnWidthTracker(sheet);
         int rowNum = 0;
-        Row titleRow = sheet.createRow(rowNum++);
+        Row titleRow = columnWidths.createRow(rowNum++);
         Cell titleCell = titleRow.createCell(0);
         titleCell.setCellValue("Fulfillment Report by " + report.groupBy().label());
         titleCell.setCellStyle(titleStyle);
 
-        Row dateRow = sheet.createRow(rowNum++);
+        Row dateRow = columnWidths.createRow(rowNum++);
         dateRow.createCell(0).setCellValue("Collection Date Range");
         dateRow.createCell(1).setCellValue(report.startDate() + " to " + report.endDate());
 
-        Row sourceRow = sheet.createRow(rowNum++);
+        Row sourceRow = columnWidths.createRow(rowNum++);
         sourceRow.createCell(0).setCellValue("Source Rows");
         sourceRow.createCell(1).setCellValue(report.scrapedFulfilledRows() + " Live Cells, "
                 + report.scrapedCancelledRows() + " Cancelled");
 
-        Row groupingRow = sheet.createRow(rowNum++);
+        Row groupingRow = columnWidths.createRow(rowNum++);
         groupingRow.createCell(0).setCellValue("Cell Type Grouping");
         groupingRow.createCell(1).setCellValue(report.separateByCellType() ? "Separated by Cell Type" : "All Cell Types");
 
         rowNum++;
 
-        Row headerRow = sheet.createRow(rowNum++);
+        Row headerRow = columnWidths.createRow(rowNum++);
         String[] headers = report.groupBy() == FulfillmentReport.GroupBy.ORDERED_BY
                 ? new String[]{report.groupBy().label(), "Lab Owner(s)", "Cell Type", "Fulfilled", "Cancelled", "Total Orders", "Fulfillment Rate", "Fraction"}
                 : new String[]{report.groupBy().label(), "Cell Type", "Fulfilled", "Cancelled", "Total Orders", "Fulfillment Rate", "Fraction"};
@@ -384,7 +452,7 @@ public class HICExcelLogger {
         }
 
         for (FulfillmentReport.ReportLine line : report.sortedLines()) {
-            Row row = sheet.createRow(rowNum++);
+            Row row = columnWidths.createRow(rowNum++);
             int column = 0;
             row.createCell(column++).setCellValue(line.groupName());
             if (report.groupBy() == FulfillmentReport.GroupBy.ORDERED_BY) {
@@ -400,9 +468,7 @@ public class HICExcelLogger {
             row.createCell(column).setCellValue(line.fulfilled() + "/" + line.total());
         }
 
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
-        }
+        columnWidths.autoSizeColumns(headers.length);
         sheet.createFreezePane(0, 6);
     }
 
@@ -419,32 +485,35 @@ public class HICExcelLogger {
                                             CellStyle headerStyle,
                                             CellStyle groupStyle,
                                             String[] headers,
-                                            Map<String, RequesterCellOrders> cd4Cd8OrderTypes,
+                                            PartitionedOrders cd4Cd8OrderTypes,
                                             String donor) {
         Sheet sheet = workbook.createSheet(sheetName);
+        ColumnWidthTracker columnWidths = new ColumnWidthTracker(sheet);
         int rowNum = 0;
 
-        Row titleRow = sheet.createRow(rowNum++);
+        Row titleRow = columnWidths.createRow(rowNum++);
         Cell titleCell = titleRow.createCell(0);
         titleCell.setCellValue(title);
         titleCell.setCellStyle(titleStyle);
 
-        Row dateDonorRow = sheet.createRow(rowNum++);
+        Row dateDonorRow = columnWidths.createRow(rowNum++);
         writeDateAndDonor(dateDonorRow, donor, 2, headerStyle);
 
         rowNum++;
 
+        LowYieldPriority priority = new LowYieldPriority(fulfillmentStats);
+        OrderReconciliation reconciliation = fulfillmentStats == null ? null : fulfillmentStats.getReconciliation();
         for (String cellType : orderedCellTypes) {
             List<HICData> ranked = byCellType.get(cellType).stream()
-                    .sorted((left, right) -> compareLowYieldPriority(left, right, fulfillmentStats))
+                    .sorted(priority)
                     .toList();
 
-            Row groupRow = sheet.createRow(rowNum++);
+            Row groupRow = columnWidths.createRow(rowNum++);
             Cell groupCell = groupRow.createCell(0);
             groupCell.setCellValue(cellType);
             groupCell.setCellStyle(groupStyle);
 
-            Row headerRow = sheet.createRow(rowNum++);
+            Row headerRow = columnWidths.createRow(rowNum++);
             for (int i = 0; i < headers.length; i++) {
                 Cell cell = headerRow.createCell(i);
                 cell.setCellValue(headers[i]);
@@ -453,7 +522,7 @@ public class HICExcelLogger {
 
             for (int i = 0; i < ranked.size(); i++) {
                 HICData data = ranked.get(i);
-                Row row = sheet.createRow(rowNum++);
+                Row row = columnWidths.createRow(rowNum++);
                 row.createCell(0).setCellValue(i + 1);
                 row.createCell(1).setCellValue(data.getOrderNumber());
                 row.createCell(2).setCellValue(data.getName());
@@ -465,17 +534,24 @@ public class HICExcelLogger {
                 if (cd4Cd8OrderTypes != null) {
                     row.createCell(8).setCellValue(cd4Cd8OrderType(data, cd4Cd8OrderTypes));
                 }
+                if (reconciliation != null) {
+                    row.createCell(headers.length - 1).setCellValue(reconciliation.match(data).toDisplayText());
+                }
             }
 
             rowNum++;
         }
 
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
-        }
+        columnWidths.autoSizeColumns(headers.length);
         sheet.createFreezePane(0, 2);
     }
 
+    private static String[] withMonthViewColumn(String[] headers) {
+        String[] withColumn = Arrays.copyOf(headers, headers.length + 1);
+        withColumn[headers.length] = "Month View";
+        return withColumn;
+    }
+
     private void writeDateAndDonor(Row row, String donor, int donorColumn, CellStyle style) {
         Cell dateCell = row.createCell(0);
         dateCell.setCellValue("DATE: " + LocalDate.now());
@@ -486,28 +562,13 @@ public class HICExcelLogger {
         donorCell.setCellStyle(style);
     }
 
-    private Map<String, RequesterCellOrders> buildCd4Cd8OrderTypes(List<HICData> hicData) {
-        Map<String, RequesterCellOrders> requesters = new LinkedHashMap<>();
-        for (HICData data : hicData) {
-            if (!Objects.equals(data.getCellType(), "CD4+") && !Objects.equals(data.getCellType(), "CD8+")) {
-                continue;
-            }
-
-            String requesterName = normalizedRequesterName(data.getName());
-            String key = requesterName.toLowerCase();
-            RequesterCellOrders requester = requesters.computeIfAbsent(key, ignored -> new RequesterCellOrders(requesterName));
-            OrderRequest orderRequest = new OrderRequest(data.getOrderNumber(), data.getMaxRequest(), data.getMinRequest());
-            if (Objects.equals(data.getCellType(), "CD4+")) {
-                requester.cd4Orders.add(orderRequest);
-            } else {
-                requester.cd8Orders.add(orderRequest);
-            }
-        }
-        return requesters;
+    private static boolean isCd4OrCd8Label(String cellType) {
+        CellType knownCellType = CellType.fromLabel(cellType);
+        return knownCellType != null && knownCellType.isCd4OrCd8();
     }
 
-    private String cd4Cd8OrderType(HICData data, Map<String, RequesterCellOrders> cd4Cd8OrderTypes) {
-        RequesterCellOrders requester = cd4Cd8OrderTypes.get(normalizedRequesterName(data.getName()).toLowerCase());
+    private String cd4Cd8OrderType(HICData data, PartitionedOrders cd4Cd8OrderTypes) {
+        RequesterOrders requester = cd4Cd8OrderTypes.getCd4Cd8Requester(data.getName());
         if (requester == null) {
             return "";
         }
@@ -520,76 +581,6 @@ public class HICExcelLogger {
         return "";
     }
 
-    private String normalizedRequesterName(String name) {
-        String rawRequesterName = name == null ? "" : name.trim();
-        return rawRequesterName.isEmpty() ? "Unknown" : rawRequesterName;
-    }
-
-    private Comparator<HICData> lowYieldPriorityTieBreaker() {
-        return Comparator
-                .comparing(HICData::getRequestDate)
-                .thenComparingInt(HICData::getOrderNumber);
-    }
-
-    private int compareLowYieldPriority(HICData left, HICData right, FulfillmentStats fulfillmentStats) {
-        double leftRate = fulfillmentRateForPriority(left, fulfillmentStats);
-        double rightRate = fulfillmentRateForPriority(right, fulfillmentStats);
-        int byRate = Double.compare(leftRate, rightRate);
-        if (byRate != 0) {
-            return byRate;
-        }
-
-        if (leftRate >= 0 && leftRate <= 1 && rightRate >= 0 && rightRate <= 1) {
-            if (Double.compare(leftRate, 1.0) == 0) {
-                int byLowerVolume = Integer.compare(
-                        fulfillmentTotal(left, fulfillmentStats),
-                        fulfillmentTotal(right, fulfillmentStats)
-                );
-                if (byLowerVolume != 0) {
-                    return byLowerVolume;
-                }
-            } else {
-                int byMoreCancellations = Integer.compare(
-                        fulfillmentCancelled(right, fulfillmentStats),
-                        fulfillmentCancelled(left, fulfillmentStats)
-                );
-                if (byMoreCancellations != 0) {
-                    return byMoreCancellations;
-                }
-            }
-        }
-
-        return lowYieldPriorityTieBreaker().compare(left, right);
-    }
-
-    private double fulfillmentRateForPriority(HICData data, FulfillmentStats fulfillmentStats) {
-        double rate = fulfillmentRate(data, fulfillmentStats);
-        return rate < 0 ? 2.0 : rate;
-    }
-
-    private double fulfillmentRate(HICData data, FulfillmentStats fulfillmentStats) {
-        if (fulfillmentStats == null) {
-            return -1.0;
-        }
-        return fulfillmentStats.fulfillmentRate(data.getName(), data.getCellType());
-    }
-
-    private int fulfillmentTotal(HICData data, FulfillmentStats fulfillmentStats) {
-        if (fulfillmentStats == null) {
-            return 0;
-        }
-        FulfillmentStats.StatLine line = fulfillmentStats.findLine(data.getName(), data.getCellType());
-        return line == null ? 0 : line.fulfilled() + line.cancelled();
-    }
-
-    private int fulfillmentCancelled(HICData data, FulfillmentStats fulfillmentStats) {
-        if (fulfillmentStats == null) {
-            return 0;
-        }
-        FulfillmentStats.StatLine line = fulfillmentStats.findLine(data.getName(), data.getCellType());
-        return line == null ? 0 : line.cancelled();
-    }
-
     private String fulfillmentFraction(HICData data, FulfillmentStats fulfillmentStats) {
         if (fulfillmentStats == null) {
             return "Fulfillment unavailable";
@@ -613,10 +604,9 @@ public class HICExcelLogger {
      */
     public void exportToWord(List<HICData> hicData, String wordTemplatePath, String wordFilePath, String donor) throws IOException {
         // Open the Word document template
-        try (XWPFDocument doc = new XWPFDocument(new FileInputStream(wordTemplatePath))) {
-            List<CTTbl> templateTables = doc.getTables().stream()
-                    .map(table -> (CTTbl) table.getCTTbl().copy())
-                    .toList();
+        TemplateCache.Template template = templateCache.get(wordTemplatePath);
+        try (XWPFDocument doc = new XWPFDocument(template.newInputStream())) {
+            List<CTTbl> templateTables = template.wordTables();
 
             LabelExportState state = new LabelExportState();
             List<XWPFTable> pageTables = new ArrayList<>(doc.getTables());
@@ -804,26 +794,40 @@ public class HICExcelLogger {
      * @param outputPath path for sign out sheet export
      * @param donor number
      */
-    public void exportToSignOutSheet(List<HICData> hicData, String templatePath, String outputPath, String donor) throws HICDataNotFoundException {
+    public void exportToSignOutSheet(List<HICData> hicData, String templatePath, String outputPath, String donor) throws HICDataNotFoundException, IOException {
 
         FileReader fileReader = FileReader.getInstance();
         Processor processor = new Processor(fileReader);
 
         processor.sortByCellTypeAndDateTime(hicData);
-        List<HICData> incubatorList = processor.getIncubatorCells(hicData);
-        List<HICData> deliFridgeList = processor.getDeliFridgeCells(hicData);
+        exportToSignOutSheet(PartitionedOrders.of(hicData), templatePath, outputPath, donor);
+    }
+
+    /**
+     * Exports incubator and deli fridge orders to sign out sheet
+     * @param partitionedOrders orders of the run, sorted by cell type and date before partitioning
+     * @param templatePath template path for sign out sheet
+     * @param outputPath path for sign out sheet export
+     * @param donor number
+     */
+    public void exportToSignOutSheet(PartitionedOrders partitionedOrders, String templatePath, String outputPath, String donor) throws IOException {
+
+        List<HICData> incubatorList = partitionedOrders.getIncubatorOrders();
+        List<HICData> deliFridgeList = partitionedOrders.getDeliFridgeOrders();
 
         LocalDate currentDate = LocalDate.now(); //get the local date
         donor = donor.toUpperCase(); //set donor number to upper case
 
-        try (FileInputStream templateStream = new FileInputStream(templatePath);
+        try (InputStream templateStream = templateCache.get(templatePath).newInputStream();
              Workbook workbook = new XSSFWorkbook(templateStream)) { //create excel workbook
 
+            CellStyleRegistry styles = new CellStyleRegistry(workbook);
+
             // Populate the first sheet
             Sheet incubatorSheet = workbook.getSheetAt(0); // Assuming the first sheet
             int startingRowIncubator = 4; // Start from the 5th row
 
-            writeStyledSignOutDateAndDonorRow(incubatorSheet, currentDate, donor);
+            writeStyledSignOutDateAndDonorRow(incubatorSheet, currentDate, donor, styles);
             for (HICData data : incubatorList) {
                 Row row = incubatorSheet.createRow(startingRowIncubator++);
                 row.createCell(0).setCellValue(data.getID()); //set ID number
@@ -835,7 +839,7 @@ public class HICExcelLogger {
             Sheet deliFridgeSheet = workbook.getSheetAt(1); // Create a new sheet
             int startingRowDeli = 4; // Start from the 5th row
 
-            writeStyledSignOutDateAndDonorRow(deliFridgeSheet, currentDate, donor);
+            writeStyledSignOutDateAndDonorRow(deliFridgeSheet, currentDate, donor, styles);
             for (HICData data : deliFridgeList) {
                 Row row = deliFridgeSheet.createRow(startingRowDeli++);
                 row.createCell(0).setCellValue(data.getID()); //set ID number
@@ -844,28 +848,19 @@ public class HICExcelLogger {
             }
 
             // Add borders and adjust row height for both sheets
-            addBordersAndAdjustRowHeight(incubatorSheet);
-            addBordersAndAdjustRowHeight(deliFridgeSheet);
+            addBordersAndAdjustRowHeight(incubatorSheet, styles);
+            addBordersAndAdjustRowHeight(deliFridgeSheet, styles);
 
             // Write workbook to file
             try (FileOutputStream fileOut = new FileOutputStream(outputPath)) {
                 applyPrintDefaults(workbook);
                 workbook.write(fileOut);
                 System.out.println("\nHICData exported to SignOutSheet successfully.");
-            } catch (IOException e) {
-                System.err.println("\nThe file could not be saved to that directory: " + e.getMessage());
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
 
-    private void writeStyledSignOutDateAndDonorRow(Sheet sheet, LocalDate date, String donor) {
-        Workbook workbook = sheet.getWorkbook();
-        Font font = workbook.createFont();
-        font.setBold(true);
-        font.setFontHeightInPoints((short) 18);
-
+    private void writeStyledSignOutDateAndDonorRow(Sheet sheet, LocalDate date, String donor, CellStyleRegistry styles) {
         Row row = sheet.getRow(2);
         if (row == null) {
             row = sheet.createRow(2);
@@ -875,12 +870,7 @@ public class HICExcelLogger {
             if (cell == null) {
                 cell = row.createCell(column);
             }
-            CellStyle style = workbook.createCellStyle();
-            style.cloneStyleFrom(cell.getCellStyle());
-            style.setFont(font);
-            style.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
-            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            cell.setCellStyle(style);
+            cell.setCellStyle(styles.highlightedStyle(cell.getCellStyle(), true, (short) 18, IndexedColors.YELLOW));
         }
 
         row.getCell(0).setCellValue("DATE: " + date);
@@ -888,7 +878,7 @@ public class HICExcelLogger {
         row.setHeightInPoints(24);
     }
 
-    private void addBordersAndAdjustRowHeight(Sheet sheet) {
+    private void addBordersAndAdjustRowHeight(Sheet sheet, CellStyleRegistry styles) {
         // Set borders for columns A to E
         for (int i = 4; i < 80; i++) {
             Row row = sheet.getRow(i);
@@ -900,15 +890,20 @@ public class HICExcelLogger {
                 if (cell == null) {
                     cell = row.createCell(j);
                 }
-                setBorder(cell);
+                cell.setCellStyle(styles.borderedStyle());
             }
-            sheet.setColumnWidth(0, 4000); // Set width for column A
-            sheet.autoSizeColumn(1); // Auto-size column B
-            sheet.autoSizeColumn(2); // Auto-size column C
-            sheet.setColumnWidth(3, 8000); // Set width for column D
-            sheet.setColumnWidth(4, 8000); // Set width for column E
         }
 
+        ColumnWidthTracker columnWidths = new ColumnWidthTracker(sheet);
+        for (Row row : sheet) {
+            columnWidths.track(row);
+        }
+        sheet.setColumnWidth(0, 4000); // Set width for column A
+        columnWidths.autoSizeColumn(1); // Auto-size column B
+        columnWidths.autoSizeColumn(2); // Auto-size column C
+        sheet.setColumnWidth(3, 8000); // Set width for column D
+        sheet.setColumnWidth(4, 8000); // Set width for column E
+
         // Set row height to 25
         for (int i = 4; i < 80; i++) {
             Row row = sheet.getRow(i);
@@ -919,6 +914,20 @@ public class HICExcelLogger {
         }
     }
 
+    /**
+     * @param expectedRows rows the export will write, roughly
+     * @return an in-memory workbook, or a streaming one that keeps only a window of rows in memory when the
+     * export is larger than STREAMING_ROW_THRESHOLD
+     */
+    private Workbook newWorkbook(int expectedRows) {
+        if (expectedRows <= STREAMING_ROW_THRESHOLD) {
+            return new XSSFWorkbook();
+        }
+        StreamingWorkbook workbook = new StreamingWorkbook();
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
     private void applyPrintDefaults(Workbook workbook) {
         for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
             applyPrintDefaults(workbook.getSheetAt(i));
@@ -943,110 +952,46 @@ public class HICExcelLogger {
         return style;
     }
 
-    // Method to set border for a cell
-    private void setBorder(Cell cell) {
-        Workbook workbook = cell.getSheet().getWorkbook();
-        CellStyle style = workbook.createCellStyle();
-        style.setBorderBottom(BorderStyle.THIN);
-        style.setBorderTop(BorderStyle.THIN);
-        style.setBorderRight(BorderStyle.THIN);
-        style.setBorderLeft(BorderStyle.THIN);
-        cell.setCellStyle(style);
-    }
-
-    private int writeRequesterGroupRows(Sheet sheet, int rowNum, String category, List<RequesterCellOrders> requesters) {
+    private int writeRequesterGroupRows(ColumnWidthTracker columnWidths, int rowNum, String category, List<RequesterOrders> requesters) {
         if (requesters.isEmpty()) {
-            Row row = sheet.createRow(rowNum++);
+            Row row = columnWidths.createRow(rowNum++);
             row.createCell(0).setCellValue(category);
             row.createCell(1).setCellValue("None");
             return rowNum;
         }
 
-        for (RequesterCellOrders requester : requesters) {
-            Row row = sheet.createRow(rowNum++);
+        for (RequesterOrders requester : requesters) {
+            Row row = columnWidths.createRow(rowNum++);
             row.createCell(0).setCellValue(category);
-            row.createCell(1).setCellValue(requester.name);
-            row.createCell(2).setCellValue(joinOrderRequests(requester.cd4Orders));
-            row.createCell(3).setCellValue(joinOrderRequests(requester.cd8Orders));
+            row.createCell(1).setCellValue(requester.getName());
+            row.createCell(2).setCellValue(joinOrderRequests(requester.getCd4Orders()));
+            row.createCell(3).setCellValue(joinOrderRequests(requester.getCd8Orders()));
         }
         return rowNum;
     }
 
-    private int countRecentlyCancelledRequests(HICData data) {
-        String cancellations = data.getRecentlyCancelledRequests();
-        if (cancellations == null || cancellations.isBlank() || cancellations.equalsIgnoreCase("N/A")) {
-            return 0;
-        }
-        int count = 0;
-        for (String line : cancellations.split("\\R")) {
-            if (line.trim().startsWith("#")) {
-                count++;
-            }
-        }
-        return count;
-    }
-
-    private String formatRecentlyCancelledRequests(String cancellations) {
-        if (cancellations == null || cancellations.isBlank()) {
-            return "";
-        }
-        if (cancellations.equalsIgnoreCase("N/A")) {
-            return "";
-        }
-        return cancellations.lines()
-                .map(String::trim)
-                .filter(line -> !line.isEmpty())
-                .collect(Collectors.joining("; "));
-    }
-
     private String joinOrderRequests(List<OrderRequest> orderRequests) {
         return orderRequests.stream()
                 .map(OrderRequest::toDisplayText)
                 .collect(Collectors.joining(", "));
     }
 
-    private static class RequesterCellOrders {
-        private final String name;
-        private final List<OrderRequest> cd4Orders = new ArrayList<>();
-        private final List<OrderRequest> cd8Orders = new ArrayList<>();
-
-        private RequesterCellOrders(String name) {
-            this.name = name;
-        }
-
-        private boolean hasBoth() {
-            return !cd4Orders.isEmpty() && !cd8Orders.isEmpty();
-        }
-
-        private boolean hasOnlyCd4() {
-            return !cd4Orders.isEmpty() && cd8Orders.isEmpty();
-        }
-
-        private boolean hasOnlyCd8() {
-            return cd4Orders.isEmpty() && !cd8Orders.isEmpty();
-        }
-    }
-
-    private static class OrderRequest {
-        private final int orderNumber;
-        private final double maxRequest;
-        private final double minRequest;
-
-        private OrderRequest(int orderNumber, double maxRequest, double minRequest) {
-            this.orderNumber = orderNumber;
-            this.maxRequest = maxRequest;
-            this.minRequest = minRequest;
-        }
+    /**
+     * Streaming workbook that also deletes its temp files when closed
+     */
+    private static final class StreamingWorkbook extends SXSSFWorkbook {
 
-        private String toDisplayText() {
-            return orderNumber + " (Max: " + formatRequest(maxRequest) + ", Min: " + formatRequest(minRequest) + ")";
+        private StreamingWorkbook() {
+            super(STREAMING_ROW_WINDOW);
         }
 
-        private String formatRequest(double request) {
-            if (request == Math.rint(request)) {
-                return String.valueOf((int) request);
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                dispose();
             }
-            return String.valueOf(request);
         }
     }
 
@@ -0,0 +1,91 @@
+package hic.logging;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTbl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Label and sign-out templates kept in memory between exports. A template is read again only when its
+ * modification time or size on disk changes, so repeat runs only check the file's attributes. Safe to share
+ * between exports running at the same time.
+ */
+final class TemplateCache {
+
+    private final Map<Path, Template> templates = new ConcurrentHashMap<>();
+
+    /**
+     * @param templatePath of the template file
+     * @return the template as it is on disk now
+     * @throws IOException if the file cannot be read
+     */
+    Template get(String templatePath) throws IOException {
+        Path path = Path.of(templatePath).toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Template cached = templates.get(path);
+        if (cached != null && cached.matches(attributes)) {
+            return cached;
+        }
+
+        // Attributes are taken before reading, so a file changed meanwhile is read again next time
+        Template template = new Template(attributes.lastModifiedTime(), attributes.size(), Files.readAllBytes(path));
+        templates.put(path, template);
+        return template;
+    }
+
+    /**
+     * One version of a template file
+     */
+    static final class Template {
+
+        private final FileTime lastModified;
+        private final long size;
+        private final byte[] bytes;
+        private List<CTTbl> wordTables;
+
+        private Template(FileTime lastModified, long size, byte[] bytes) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.bytes = bytes;
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModified.equals(attributes.lastModifiedTime());
+        }
+
+        /**
+         * @return the file's contents, to open a new document or workbook from
+         */
+        InputStream newInputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        /**
+         * @return copies of the tables of a Word template, parsed once; only copy them, never change them
+         */
+        synchronized List<CTTbl> wordTables() throws IOException {
+            if (wordTables == null) {
+                try (XWPFDocument doc = new XWPFDocument(newInputStream())) {
+                    List<CTTbl> tables = new ArrayList<>();
+                    for (XWPFTable table : doc.getTables()) {
+                        tables.add((CTTbl) table.getCTTbl().copy());
+                    }
+                    wordTables = Collections.unmodifiableList(tables);
+                }
+            }
+            return wordTables;
+        }
+    }
+}
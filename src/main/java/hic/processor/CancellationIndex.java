@@ -0,0 +1,120 @@
+package hic.processor;
+
+import hic.util.CancelledRequest;
+import hic.util.HICData;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Recent cancellation counts over one dataset, gathered in one pass over the decoded # lines of every order, so
+ * exports and priority code can look a count up instead of walking the orders:
+ * <ul>
+ *     <li>how many orders list a given order number as recently cancelled,</li>
+ *     <li>how many recent cancellations a requester's orders list, overall and per cell type.</li>
+ * </ul>
+ * LIMS repeats a requester's cancellation history under each of their orders, so cancellations are counted once
+ * per cancelled order number; a # line without an order number counts each time it appears. Requesters are
+ * matched by {@link OrderIndex#normalizeRequester(String)}. The index does not see later changes.
+ */
+public final class CancellationIndex {
+
+    private final Map<Integer, Integer> listingsByOrder = new HashMap<>();
+    private final Counts byRequester = new Counts();
+    private final Counts byRequesterAndCellType = new Counts();
+    private final Counts all = new Counts();
+
+    private CancellationIndex() {
+    }
+
+    /**
+     * @param hicData orders with their recent cancellations
+     * @return the counts
+     */
+    public static CancellationIndex of(List<HICData> hicData) {
+        CancellationIndex index = new CancellationIndex();
+        // The same few requesters place most orders, so each distinct spelling is normalized once
+        Map<String, String> normalizedNames = new HashMap<>();
+        Set<Integer> listedByOrder = new HashSet<>();
+        for (HICData data : hicData) {
+            if (data.getRecentlyCancelledCount() == 0) {
+                continue;
+            }
+            String requester = normalizedNames.computeIfAbsent(data.getName(), OrderIndex::normalizeRequester);
+            String requesterAndCellType = key(requester, data.getCellType());
+
+            listedByOrder.clear();
+            for (CancelledRequest cancelledRequest : data.getRecentlyCancelled()) {
+                if (!cancelledRequest.isReference()) {
+                    continue;
+                }
+                int orderNumber = cancelledRequest.orderNumber();
+                if (orderNumber != CancelledRequest.NO_ORDER && listedByOrder.add(orderNumber)) {
+                    index.listingsByOrder.merge(orderNumber, 1, Integer::sum);
+                }
+                index.byRequester.add(requester, orderNumber);
+                index.byRequesterAndCellType.add(requesterAndCellType, orderNumber);
+                index.all.add("", orderNumber);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return number of orders listing the order number as recently cancelled
+     */
+    public int timesListed(int orderNumber) {
+        return listingsByOrder.getOrDefault(orderNumber, 0);
+    }
+
+    /**
+     * @return distinct recent cancellations listed under the requester's orders
+     */
+    public int countForRequester(String name) {
+        return byRequester.count(OrderIndex.normalizeRequester(name));
+    }
+
+    /**
+     * @return distinct recent cancellations listed under the requester's orders of one cell type
+     */
+    public int countForRequester(String name, String cellType) {
+        return byRequesterAndCellType.count(key(OrderIndex.normalizeRequester(name), cellType));
+    }
+
+    /**
+     * @return distinct recent cancellations listed under all orders
+     */
+    public int getTotal() {
+        return all.count("");
+    }
+
+    private static String key(String requester, String cellType) {
+        return requester + "|" + (cellType == null ? "" : cellType.trim().toLowerCase());
+    }
+
+    /**
+     * Distinct cancelled order numbers per key, plus the # lines without an order number, which cannot be told
+     * apart and are counted one by one
+     */
+    private static final class Counts {
+
+        private final Map<String, Set<Integer>> orderNumbers = new HashMap<>();
+        private final Map<String, Integer> unnumberedLines = new HashMap<>();
+
+        private void add(String key, int orderNumber) {
+            if (orderNumber == CancelledRequest.NO_ORDER) {
+                unnumberedLines.merge(key, 1, Integer::sum);
+            } else {
+                orderNumbers.computeIfAbsent(key, ignored -> new HashSet<>()).add(orderNumber);
+            }
+        }
+
+        private int count(String key) {
+            Set<Integer> numbers = orderNumbers.get(key);
+            return (numbers == null ? 0 : numbers.size()) + unnumberedLines.getOrDefault(key, 0);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package hic.processor;
+
+import hic.util.CellType;
+import hic.util.HICData;
+import hic.util.OrderTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+/**
+ * Order count and max/min request totals per cell type, gathered in one pass over the orders. The summary text,
+ * the apheresis calculation and the donor-specific report are all read from this instead of walking the orders
+ * again. Orders with a non-standard cell type are not counted.
+ * <p>
+ * Totals are Neumaier compensated sums taken over fixed blocks of BLOCK_SIZE orders, and the block results are
+ * always folded in block order. Block edges depend only on the input, so a parallel summary has the same bits as
+ * a sequential one at any thread count.
+ */
+public final class CellTypeSummary {
+
+    /** Cell types apheresis is calculated for, in report order */
+    public static final List<CellType> APHERESIS_CELL_TYPES = Collections.unmodifiableList(Arrays.asList(
+            CellType.NK_CELLS, CellType.CD8, CellType.CD4, CellType.MONOCYTES, CellType.TOTAL_T, CellType.B_CELLS));
+
+    // Cell types in the positional max/min list, max then min for each
+    private static final CellType[] MAX_AND_MIN_LIST_ORDER = {
+            CellType.NK_CELLS, CellType.CD8, CellType.CD4, CellType.MONOCYTES, CellType.TOTAL_T, CellType.B_CELLS,
+            CellType.TOP_LAYER_FICOLL, CellType.BOTTOM_LAYER_FICOLL
+    };
+
+    // Orders summed by one task; changing it can change the last bit of the totals
+    private static final int BLOCK_SIZE = 4096;
+
+    private final int[] orders = new int[CellType.count()];
+    private final double[] max = new double[CellType.count()];
+    private final double[] min = new double[CellType.count()];
+
+    private CellTypeSummary() {
+    }
+
+    /**
+     * @param hicData orders to summarize
+     * @return totals per cell type
+     */
+    public static CellTypeSummary of(List<HICData> hicData) {
+        List<HICData> orders = randomAccess(hicData);
+        return sequential(blockCount(orders.size()), block -> sumBlock(orders, block));
+    }
+
+    /**
+     * Same totals as {@link #of(List)}, with the blocks summed on a fork/join pool
+     *
+     * @param hicData orders to summarize
+     * @param pool    to sum the blocks on
+     * @return totals per cell type
+     */
+    public static CellTypeSummary of(List<HICData> hicData, ForkJoinPool pool) {
+        List<HICData> orders = randomAccess(hicData);
+        return parallel(blockCount(orders.size()), block -> sumBlock(orders, block), pool);
+    }
+
+    /**
+     * @param orderTable orders to summarize, read column by column
+     * @return totals per cell type
+     */
+    public static CellTypeSummary of(OrderTable orderTable) {
+        return sequential(blockCount(orderTable.size()), block -> sumBlock(orderTable, block));
+    }
+
+    /**
+     * Same totals as {@link #of(OrderTable)}, with the blocks summed on a fork/join pool
+     *
+     * @param orderTable orders to summarize, read column by column
+     * @param pool       to sum the blocks on
+     * @return totals per cell type
+     */
+    public static CellTypeSummary of(OrderTable orderTable, ForkJoinPool pool) {
+        return parallel(blockCount(orderTable.size()), block -> sumBlock(orderTable, block), pool);
+    }
+
+    /**
+     * Rebuild a summary from the positional list of {@link #toMaxAndMinList()}. Order counts are not part of
+     * that list and come back as zero.
+     *
+     * @param maxAndMinRequests max then min for NK, CD8, CD4, Monocytes, Total T, B, Top Layer, Bottom Layer
+     * @return totals per cell type
+     */
+    public static CellTypeSummary fromMaxAndMinList(List<Double> maxAndMinRequests) {
+        CellTypeSummary summary = new CellTypeSummary();
+        for (int i = 0; i < MAX_AND_MIN_LIST_ORDER.length && 2 * i + 1 < maxAndMinRequests.size(); i++) {
+            int index = MAX_AND_MIN_LIST_ORDER[i].ordinal();
+            summary.max[index] = maxAndMinRequests.get(2 * i);
+            summary.min[index] = maxAndMinRequests.get(2 * i + 1);
+        }
+        return summary;
+    }
+
+    /**
+     * @return a summary of compensated sums, each total being its sum plus its compensation
+     */
+    static CellTypeSummary fromCompensated(int[] orders, double[] max, double[] maxCompensation, double[] min,
+                                           double[] minCompensation) {
+        CellTypeSummary summary = new CellTypeSummary();
+        for (int i = 0; i < summary.orders.length; i++) {
+            summary.orders[i] = orders[i];
+            summary.max[i] = max[i] + maxCompensation[i];
+            summary.min[i] = min[i] + minCompensation[i];
+        }
+        return summary;
+    }
+
+    /**
+     * Neumaier's variant of Kahan summation: the rounding error of each addition is kept in compensation
+     */
+    static void addCompensated(double[] sum, double[] compensation, int index, double value) {
+        double total = sum[index];
+        double next = total + value;
+        if (Math.abs(total) >= Math.abs(value)) {
+            compensation[index] += (total - next) + value;
+        } else {
+            compensation[index] += (value - next) + total;
+        }
+        sum[index] = next;
+    }
+
+    private static CellTypeSummary sequential(int blockCount, IntFunction<BlockTotals> blockSum) {
+        BlockTotals total = new BlockTotals();
+        for (int block = 0; block < blockCount; block++) {
+            total.fold(blockSum.apply(block));
+        }
+        return total.toSummary();
+    }
+
+    private static CellTypeSummary parallel(int blockCount, IntFunction<BlockTotals> blockSum, ForkJoinPool pool) {
+        BlockTotals[] blocks = new BlockTotals[blockCount];
+        if (blockCount > 0) {
+            pool.invoke(new BlockSumTask(blocks, 0, blockCount, blockSum));
+        }
+
+        BlockTotals total = new BlockTotals();
+        for (BlockTotals block : blocks) {
+            total.fold(block);
+        }
+        return total.toSummary();
+    }
+
+    private static BlockTotals sumBlock(List<HICData> hicData, int block) {
+        BlockTotals totals = new BlockTotals();
+        int end = Math.min(hicData.size(), (block + 1) * BLOCK_SIZE);
+        for (int i = block * BLOCK_SIZE; i < end; i++) {
+            HICData data = hicData.get(i);
+            CellType cellType = data.getKnownCellType();
+            if (cellType != null) {
+                totals.add(cellType.ordinal(), data.getMaxRequest(), data.getMinRequest());
+            }
+        }
+        return totals;
+    }
+
+    private static BlockTotals sumBlock(OrderTable orderTable, int block) {
+        BlockTotals totals = new BlockTotals();
+        orderTable.accumulateByCellType(block * BLOCK_SIZE, Math.min(orderTable.size(), (block + 1) * BLOCK_SIZE), totals);
+        return totals;
+    }
+
+    private static int blockCount(int size) {
+        return (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    private static List<HICData> randomAccess(List<HICData> hicData) {
+        return hicData instanceof RandomAccess ? hicData : new ArrayList<>(hicData);
+    }
+
+    public int getOrderCount(CellType cellType) {
+        return orders[cellType.ordinal()];
+    }
+
+    public double getMaxRequest(CellType cellType) {
+        return max[cellType.ordinal()];
+    }
+
+    public double getMinRequest(CellType cellType) {
+        return min[cellType.ordinal()];
+    }
+
+    /**
+     * @return apheresis needed for the max requests of the cell type
+     */
+    public double getApheresisMax(CellType cellType) {
+        return max[cellType.ordinal()] * cellType.getApheresisFactor();
+    }
+
+    /**
+     * @return apheresis needed for the min requests of the cell type
+     */
+    public double getApheresisMin(CellType cellType) {
+        return min[cellType.ordinal()] * cellType.getApheresisFactor();
+    }
+
+    /**
+     * @return orders of all known cell types
+     */
+    public int getTotalOrders() {
+        int total = 0;
+        for (int count : orders) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return total apheresis over APHERESIS_CELL_TYPES, {max, min}
+     */
+    public double[] getApheresisTotals() {
+        double totalMax = 0;
+        double totalMin = 0;
+        for (CellType cellType : APHERESIS_CELL_TYPES) {
+            totalMax += getApheresisMax(cellType);
+            totalMin += getApheresisMin(cellType);
+        }
+        return new double[]{totalMax, totalMin};
+    }
+
+    /**
+     * @return max then min for NK, CD8, CD4, Monocytes, Total T, B, Top Layer and Bottom Layer, the layout
+     * printHICSummary has always returned
+     */
+    public List<Double> toMaxAndMinList() {
+        List<Double> maxAndMinOrders = new ArrayList<>(MAX_AND_MIN_LIST_ORDER.length * 2);
+        for (CellType cellType : MAX_AND_MIN_LIST_ORDER) {
+            maxAndMinOrders.add(max[cellType.ordinal()]);
+            maxAndMinOrders.add(min[cellType.ordinal()]);
+        }
+        return maxAndMinOrders;
+    }
+
+    /**
+     * Order counts and compensated max/min sums of one block, or of all blocks folded so far
+     */
+    private static final class BlockTotals implements OrderTable.CellTypeAccumulator {
+
+        private final int[] orders = new int[CellType.count()];
+        private final double[] max = new double[CellType.count()];
+        private final double[] maxCompensation = new double[CellType.count()];
+        private final double[] min = new double[CellType.count()];
+        private final double[] minCompensation = new double[CellType.count()];
+
+        @Override
+        public void add(int cellTypeOrdinal, double maxRequest, double minRequest) {
+            orders[cellTypeOrdinal]++;
+            addCompensated(max, maxCompensation, cellTypeOrdinal, maxRequest);
+            addCompensated(min, minCompensation, cellTypeOrdinal, minRequest);
+        }
+
+        /**
+         * Add the totals of the next block
+         */
+        private void fold(BlockTotals block) {
+            for (int i = 0; i < orders.length; i++) {
+                orders[i] += block.orders[i];
+                addCompensated(max, maxCompensation, i, block.max[i]);
+                maxCompensation[i] += block.maxCompensation[i];
+                addCompensated(min, minCompensation, i, block.min[i]);
+                minCompensation[i] += block.minCompensation[i];
+            }
+        }
+
+        private CellTypeSummary toSummary() {
+            return fromCompensated(orders, max, maxCompensation, min, minCompensation);
+        }
+    }
+
+    /**
+     * Sums a range of blocks, splitting it in half until one block is left
+     */
+    private static final class BlockSumTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BlockTotals[] blocks;
+        private final int from;
+        private final int to;
+        private final IntFunction<BlockTotals> blockSum;
+
+        private BlockSumTask(BlockTotals[] blocks, int from, int to, IntFunction<BlockTotals> blockSum) {
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+            this.blockSum = blockSum;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                blocks[from] = blockSum.apply(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BlockSumTask(blocks, from, middle, blockSum), new BlockSumTask(blocks, middle, to, blockSum));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package hic.processor;
+
+import hic.util.CellType;
+import hic.yield.DonorYieldRecord;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every donor in the yield history ranked by the apheresis they would need for one run's requests. A donor's
+ * factor for a cell type is the apheresis used per cell yielded at their most recent donation, or the standard
+ * factor where that history is missing or invalid, the same rule as the donor-specific apheresis report.
+ * <p>
+ * The factors of all donors are laid out as one matrix, a row per donor and a column per cell type in
+ * {@link CellTypeSummary#APHERESIS_CELL_TYPES}, and the requirement of every donor is that matrix times the
+ * run's max and min request vectors, computed in a single pass.
+ */
+public final class DonorRanking {
+
+    private static final List<CellType> CELL_TYPES = CellTypeSummary.APHERESIS_CELL_TYPES;
+
+    private final List<DonorRequirement> ranked;
+
+    private DonorRanking(List<DonorRequirement> ranked) {
+        this.ranked = Collections.unmodifiableList(ranked);
+    }
+
+    /**
+     * @param cellTypeSummary totals of the run
+     * @param latestByDonor   each donor's records of their most recent donation, by donor id
+     * @return donors ranked by the smallest apheresis needed for all max requests, then for all min requests
+     */
+    public static DonorRanking rank(CellTypeSummary cellTypeSummary, Map<String, List<DonorYieldRecord>> latestByDonor) {
+        int columns = CELL_TYPES.size();
+        int donorCount = latestByDonor.size();
+        double[] max = new double[columns];
+        double[] min = new double[columns];
+        double[] defaults = new double[columns];
+        for (int column = 0; column < columns; column++) {
+            CellType cellType = CELL_TYPES.get(column);
+            max[column] = cellTypeSummary.getMaxRequest(cellType);
+            min[column] = cellTypeSummary.getMinRequest(cellType);
+            defaults[column] = cellType.getApheresisFactor();
+        }
+
+        String[] donorIds = new String[donorCount];
+        LocalDate[] historyDates = new LocalDate[donorCount];
+        int[] historyCounts = new int[donorCount];
+        double[] factors = new double[donorCount * columns];
+        int row = 0;
+        for (Map.Entry<String, List<DonorYieldRecord>> donor : latestByDonor.entrySet()) {
+            donorIds[row] = donor.getKey();
+            System.arraycopy(defaults, 0, factors, row * columns, columns);
+            for (DonorYieldRecord record : donor.getValue()) {
+                historyDates[row] = record.getDate();
+                CellType cellType = CellType.fromLabelIgnoreCase(record.getCellType());
+                int column = cellType == null ? -1 : CELL_TYPES.indexOf(cellType);
+                if (column >= 0 && hasUsableHistory(record)) {
+                    factors[row * columns + column] = factor(record);
+                    historyCounts[row]++;
+                }
+            }
+            row++;
+        }
+
+        List<DonorRequirement> requirements = new ArrayList<>(donorCount);
+        for (row = 0; row < donorCount; row++) {
+            double requiredMax = 0;
+            double requiredMin = 0;
+            int offset = row * columns;
+            for (int column = 0; column < columns; column++) {
+                requiredMax += factors[offset + column] * max[column];
+                requiredMin += factors[offset + column] * min[column];
+            }
+            requirements.add(new DonorRequirement(donorIds[row], historyDates[row], historyCounts[row],
+                    requiredMax, requiredMin));
+        }
+
+        requirements.sort(Comparator
+                .comparingDouble(DonorRequirement::requiredMax)
+                .thenComparingDouble(DonorRequirement::requiredMin)
+                .thenComparing(DonorRequirement::donorId));
+        return new DonorRanking(requirements);
+    }
+
+    /**
+     * @param latestRecords one donor's records of their most recent donation
+     * @return apheresis per requested cell by cell type, only for cell types with usable history
+     */
+    public static Map<CellType, Double> factorsFrom(List<DonorYieldRecord> latestRecords) {
+        Map<CellType, Double> factors = new EnumMap<>(CellType.class);
+        for (DonorYieldRecord record : latestRecords) {
+            CellType cellType = CellType.fromLabelIgnoreCase(record.getCellType());
+            if (cellType != null && hasUsableHistory(record)) {
+                factors.put(cellType, factor(record));
+            }
+        }
+        return factors;
+    }
+
+    private static boolean hasUsableHistory(DonorYieldRecord record) {
+        return record.getActualYield() > 0 && record.getApheresisUsed() > 0;
+    }
+
+    private static double factor(DonorYieldRecord record) {
+        return record.getApheresisUsed() / record.getActualYield();
+    }
+
+    /**
+     * @return donors, smallest requirement first
+     */
+    public List<DonorRequirement> getRanked() {
+        return ranked;
+    }
+
+    /**
+     * @return a table for the output area, listing at most limit donors
+     */
+    public String toDisplayText(int limit) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Donor Ranking\n");
+        sb.append("============================================================\n");
+        sb.append("Donors ranked by apheresis needed for today's max requests, using each donor's\n");
+        sb.append("most recent history; cell types without history use the default factor.\n\n");
+        if (ranked.isEmpty()) {
+            sb.append("No donors found in the donor history sheet.\n");
+            return sb.toString();
+        }
+
+        sb.append(String.format("%-6s %-14s %-12s %-10s %-10s %-8s%n",
+                "Rank", "Donor", "History", "Max", "Min", "Cells"));
+        sb.append("-------------------------------------------------------------\n");
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            DonorRequirement requirement = ranked.get(i);
+            sb.append(String.format("%-6d %-14s %-12s %-10.2f %-10.2f %d/%d%n",
+                    i + 1, requirement.donorId(), requirement.historyDate(), requirement.requiredMax(),
+                    requirement.requiredMin(), requirement.historyCellTypes(), CELL_TYPES.size()));
+        }
+        if (ranked.size() > limit) {
+            sb.append("... ").append(ranked.size() - limit).append(" more donors\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param donorId          normalized donor id
+     * @param historyDate      date of the donor's most recent donation
+     * @param historyCellTypes cell types priced from the donor's own history rather than the default factor
+     * @param requiredMax      apheresis needed for every max request
+     * @param requiredMin      apheresis needed for every min request
+     */
+    public record DonorRequirement(String donorId, LocalDate historyDate, int historyCellTypes,
+                                   double requiredMax, double requiredMin) {
+    }
+}
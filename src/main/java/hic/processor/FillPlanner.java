@@ -0,0 +1,296 @@
+package hic.processor;
+
+import hic.util.CellType;
+import hic.util.HICData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans which orders one donor's apheresis can fill. Each order costs its request times the apheresis factor of
+ * its cell type, and the plan decides per order between its max, its min and nothing:
+ * <ol>
+ *     <li>in priority order, each order gets its min if it still fits,</li>
+ *     <li>the volume left is spent on raising mins to maxes, chosen by a 0/1 knapsack over the extra volume of
+ *     each upgrade, so as many orders as possible get their max, higher priority first among equal counts,</li>
+ *     <li>whatever the knapsack's rounding left over goes to further upgrades in priority order.</li>
+ * </ol>
+ * The knapsack works on the volume split into at most MAX_COLUMNS steps with each cost rounded up, so a plan
+ * never uses more than the volume available. Cell types with no apheresis factor are not planned.
+ */
+public final class FillPlanner {
+
+    // Steps the available volume is split into for the knapsack
+    private static final int MAX_COLUMNS = 10_000;
+    // Knapsack table size above which the steps get coarser
+    private static final int MAX_TABLE_CELLS = 20_000_000;
+    // Below this many steps the knapsack is too coarse to beat the greedy upgrades
+    private static final int MIN_COLUMNS = 64;
+    private static final double EPSILON = 1e-9;
+
+    private final Map<CellType, Double> factors = new EnumMap<>(CellType.class);
+
+    /**
+     * Plan with the standard apheresis factor of each cell type
+     */
+    public FillPlanner() {
+        this(Collections.emptyMap());
+    }
+
+    /**
+     * @param factors apheresis per requested unit by cell type, e.g. a donor's own yields; cell types without a
+     *                positive factor here use the standard one
+     */
+    public FillPlanner(Map<CellType, Double> factors) {
+        for (CellType cellType : CellType.values()) {
+            Double factor = factors.get(cellType);
+            this.factors.put(cellType, factor != null && factor > 0 && Double.isFinite(factor)
+                    ? factor : cellType.getApheresisFactor());
+        }
+    }
+
+    /**
+     * @return apheresis per requested unit of the cell type used by this planner
+     */
+    public double getFactor(CellType cellType) {
+        return factors.get(cellType);
+    }
+
+    /**
+     * @param hicData         orders to plan, not changed
+     * @param availableVolume apheresis collected from the donor
+     * @param priority        order in which orders are served, e.g. {@link LowYieldPriority}
+     * @return the fill of every order, in priority order
+     */
+    public FillPlan plan(List<HICData> hicData, double availableVolume, Comparator<HICData> priority) {
+        List<HICData> ranked = new ArrayList<>(hicData);
+        ranked.sort(priority);
+
+        int size = ranked.size();
+        double[] factor = new double[size];
+        double[] minCost = new double[size];
+        double[] maxCost = new double[size];
+        Fill[] fills = new Fill[size];
+        for (int i = 0; i < size; i++) {
+            HICData data = ranked.get(i);
+            CellType cellType = data.getKnownCellType();
+            factor[i] = cellType == null ? 0 : factors.get(cellType);
+            double max = Math.max(0, data.getMaxRequest());
+            double min = Math.min(Math.max(0, data.getMinRequest()), max);
+            maxCost[i] = max * factor[i];
+            minCost[i] = min * factor[i];
+            fills[i] = factor[i] > 0 ? Fill.UNFILLED : Fill.NOT_APHERESIS;
+        }
+
+        double remaining = Math.max(0, availableVolume);
+        for (int i = 0; i < size; i++) {
+            if (fills[i] == Fill.UNFILLED && minCost[i] <= remaining + EPSILON) {
+                fills[i] = Fill.MIN;
+                remaining -= minCost[i];
+            }
+        }
+
+        // Upgrades costing nothing extra are always taken; the rest compete for the volume left
+        List<Integer> upgrades = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (fills[i] == Fill.MIN) {
+                if (maxCost[i] - minCost[i] <= EPSILON) {
+                    fills[i] = Fill.MAX;
+                } else {
+                    upgrades.add(i);
+                }
+            }
+        }
+        remaining -= applyUpgrades(chooseUpgrades(upgrades, minCost, maxCost, remaining, size), fills, minCost, maxCost);
+
+        for (int i : upgrades) {
+            double extra = maxCost[i] - minCost[i];
+            if (fills[i] == Fill.MIN && extra <= remaining + EPSILON) {
+                fills[i] = Fill.MAX;
+                remaining -= extra;
+            }
+        }
+
+        List<PlanLine> lines = new ArrayList<>(size);
+        double planned = 0;
+        for (int i = 0; i < size; i++) {
+            double volume = fills[i] == Fill.MAX ? maxCost[i] : fills[i] == Fill.MIN ? minCost[i] : 0;
+            planned += volume;
+            lines.add(new PlanLine(i + 1, ranked.get(i), factor[i], fills[i], volume));
+        }
+        return new FillPlan(Math.max(0, availableVolume), planned, Collections.unmodifiableList(lines));
+    }
+
+    /**
+     * @return the upgrades to take, the knapsack's choice unless greedy upgrades in priority order do better
+     */
+    private static List<Integer> chooseUpgrades(List<Integer> upgrades, double[] minCost, double[] maxCost,
+                                                double volume, int rankCount) {
+        List<Integer> greedy = new ArrayList<>();
+        double left = volume;
+        for (int i : upgrades) {
+            double extra = maxCost[i] - minCost[i];
+            if (extra <= left + EPSILON) {
+                greedy.add(i);
+                left -= extra;
+            }
+        }
+        if (greedy.size() == upgrades.size()) {
+            return greedy;
+        }
+
+        List<Integer> knapsack = knapsackUpgrades(upgrades, minCost, maxCost, volume, rankCount);
+        return value(knapsack, rankCount) > value(greedy, rankCount) ? knapsack : greedy;
+    }
+
+    private static List<Integer> knapsackUpgrades(List<Integer> upgrades, double[] minCost, double[] maxCost,
+                                                  double volume, int rankCount) {
+        int count = upgrades.size();
+        int columns = Math.min(MAX_COLUMNS, MAX_TABLE_CELLS / Math.max(1, count));
+        if (columns < MIN_COLUMNS || volume <= EPSILON) {
+            return Collections.emptyList();
+        }
+        double step = volume / columns;
+
+        // best[c] is the best value within c steps; taken[k][c] records whether upgrade k was taken to reach it
+        long[] best = new long[columns + 1];
+        boolean[][] taken = new boolean[count][];
+        int[] weight = new int[count];
+        for (int k = 0; k < count; k++) {
+            int i = upgrades.get(k);
+            double steps = Math.ceil((maxCost[i] - minCost[i]) / step - EPSILON);
+            taken[k] = new boolean[columns + 1];
+            if (steps > columns) {
+                weight[k] = -1;
+                continue;
+            }
+            weight[k] = (int) steps;
+            long itemValue = value(i, rankCount);
+            for (int c = columns; c >= weight[k]; c--) {
+                long withItem = best[c - weight[k]] + itemValue;
+                if (withItem > best[c]) {
+                    best[c] = withItem;
+                    taken[k][c] = true;
+                }
+            }
+        }
+
+        List<Integer> chosen = new ArrayList<>();
+        int column = columns;
+        for (int k = count - 1; k >= 0; k--) {
+            if (weight[k] >= 0 && taken[k][column]) {
+                chosen.add(upgrades.get(k));
+                column -= weight[k];
+            }
+        }
+        Collections.reverse(chosen);
+        return chosen;
+    }
+
+    /**
+     * One more upgrade always outweighs any priority difference; among equal counts higher priority wins
+     */
+    private static long value(int rankIndex, int rankCount) {
+        return (long) rankCount + 1 + (rankCount - rankIndex);
+    }
+
+    private static long value(List<Integer> chosen, int rankCount) {
+        long total = 0;
+        for (int i : chosen) {
+            total += value(i, rankCount);
+        }
+        return total;
+    }
+
+    private static double applyUpgrades(List<Integer> chosen, Fill[] fills, double[] minCost, double[] maxCost) {
+        double used = 0;
+        for (int i : chosen) {
+            fills[i] = Fill.MAX;
+            used += maxCost[i] - minCost[i];
+        }
+        return used;
+    }
+
+    /**
+     * What an order gets from the donor
+     */
+    public enum Fill {
+        MAX("Max"),
+        MIN("Min"),
+        UNFILLED("Unfilled"),
+        NOT_APHERESIS("Not from apheresis");
+
+        private final String label;
+
+        Fill(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * One order's place in a plan
+     *
+     * @param rank   1 for the order served first
+     * @param order  the order
+     * @param factor apheresis per requested unit of its cell type
+     * @param fill   what it gets
+     * @param volume apheresis planned for it
+     */
+    public record PlanLine(int rank, HICData order, double factor, Fill fill, double volume) {
+
+        /**
+         * @return the amount the plan fills, its max, its min or 0
+         */
+        public double getPlannedRequest() {
+            if (fill == Fill.MAX) {
+                return Math.max(0, order.getMaxRequest());
+            }
+            if (fill == Fill.MIN) {
+                return Math.min(Math.max(0, order.getMinRequest()), Math.max(0, order.getMaxRequest()));
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * A planned split of the donor's apheresis
+     *
+     * @param availableVolume apheresis collected from the donor
+     * @param plannedVolume   apheresis the plan uses
+     * @param lines           every order, in priority order
+     */
+    public record FillPlan(double availableVolume, double plannedVolume, List<PlanLine> lines) {
+
+        public double getRemainingVolume() {
+            return Math.max(0, availableVolume - plannedVolume);
+        }
+
+        public int count(Fill fill) {
+            int count = 0;
+            for (PlanLine line : lines) {
+                if (line.fill() == fill) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @return a few lines for the output area
+         */
+        public String describe() {
+            return String.format("Apheresis available: %.2f, planned: %.2f, left: %.2f%n"
+                            + "Max: %d, Min: %d, Unfilled: %d, Not from apheresis: %d",
+                    availableVolume, plannedVolume, getRemainingVolume(),
+                    count(Fill.MAX), count(Fill.MIN), count(Fill.UNFILLED), count(Fill.NOT_APHERESIS));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package hic.processor;
+
+import hic.util.CellType;
+
+import java.util.Arrays;
+
+/**
+ * Cell type totals kept up to date one order at a time, so an edit to a single order never means summing them
+ * all again. Adds and removals are compensated the same way as {@link CellTypeSummary}, and a cell type's totals
+ * go back to exactly zero when its last order is removed.
+ */
+public class LiveCellTypeSummary {
+
+    private final int[] orders = new int[CellType.count()];
+    private final double[] max = new double[CellType.count()];
+    private final double[] maxCompensation = new double[CellType.count()];
+    private final double[] min = new double[CellType.count()];
+    private final double[] minCompensation = new double[CellType.count()];
+
+    /**
+     * @param cellType   of the order, or null for a non-standard cell type, which is not counted
+     * @param maxRequest of the order
+     * @param minRequest of the order
+     */
+    public void add(CellType cellType, double maxRequest, double minRequest) {
+        if (cellType == null) {
+            return;
+        }
+        int index = cellType.ordinal();
+        orders[index]++;
+        CellTypeSummary.addCompensated(max, maxCompensation, index, maxRequest);
+        CellTypeSummary.addCompensated(min, minCompensation, index, minRequest);
+    }
+
+    /**
+     * Take back an order added earlier with the same values
+     *
+     * @param cellType   of the order, or null for a non-standard cell type
+     * @param maxRequest of the order
+     * @param minRequest of the order
+     */
+    public void remove(CellType cellType, double maxRequest, double minRequest) {
+        if (cellType == null) {
+            return;
+        }
+        int index = cellType.ordinal();
+        if (--orders[index] <= 0) {
+            orders[index] = 0;
+            max[index] = 0;
+            maxCompensation[index] = 0;
+            min[index] = 0;
+            minCompensation[index] = 0;
+            return;
+        }
+        CellTypeSummary.addCompensated(max, maxCompensation, index, -maxRequest);
+        CellTypeSummary.addCompensated(min, minCompensation, index, -minRequest);
+    }
+
+    public void clear() {
+        Arrays.fill(orders, 0);
+        Arrays.fill(max, 0);
+        Arrays.fill(maxCompensation, 0);
+        Arrays.fill(min, 0);
+        Arrays.fill(minCompensation, 0);
+    }
+
+    /**
+     * @return the current totals, unaffected by later adds and removals
+     */
+    public CellTypeSummary toSummary() {
+        return CellTypeSummary.fromCompensated(orders, max, maxCompensation, min, minCompensation);
+    }
+}
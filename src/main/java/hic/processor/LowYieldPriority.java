@@ -0,0 +1,96 @@
+package hic.processor;
+
+import hic.hiccell.FulfillmentStats;
+import hic.util.CellType;
+import hic.util.HICData;
+
+import java.util.Comparator;
+
+/**
+ * Order of the low-yield priority list: requesters with the lowest recent fulfillment come first. Among equal
+ * rates, a fully filled requester with fewer orders comes first, and a partly filled one with more cancellations
+ * comes first. Requesters without fulfillment history come after everyone with history. Remaining ties go by
+ * cell type low-yield priority, then by request date and order number.
+ */
+public final class LowYieldPriority implements Comparator<HICData> {
+
+    // Rate given to requesters without history, so they sort after every real rate
+    private static final double NO_HISTORY_RATE = 2.0;
+
+    private static final Comparator<HICData> TIE_BREAKER = Comparator
+            .comparingInt((HICData data) -> cellTypeRank(data))
+            .thenComparing(HICData::getRequestDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(HICData::getOrderNumber);
+
+    private final FulfillmentStats fulfillmentStats;
+
+    /**
+     * @param fulfillmentStats recent fulfillment per requester and cell type, or null if unavailable
+     */
+    public LowYieldPriority(FulfillmentStats fulfillmentStats) {
+        this.fulfillmentStats = fulfillmentStats;
+    }
+
+    @Override
+    public int compare(HICData left, HICData right) {
+        double leftRate = rateForPriority(left);
+        double rightRate = rateForPriority(right);
+        int byRate = Double.compare(leftRate, rightRate);
+        if (byRate != 0) {
+            return byRate;
+        }
+
+        if (leftRate >= 0 && leftRate <= 1 && rightRate >= 0 && rightRate <= 1) {
+            if (Double.compare(leftRate, 1.0) == 0) {
+                int byLowerVolume = Integer.compare(total(left), total(right));
+                if (byLowerVolume != 0) {
+                    return byLowerVolume;
+                }
+            } else {
+                int byMoreCancellations = Integer.compare(cancelled(right), cancelled(left));
+                if (byMoreCancellations != 0) {
+                    return byMoreCancellations;
+                }
+            }
+        }
+
+        return TIE_BREAKER.compare(left, right);
+    }
+
+    /**
+     * @return low-yield priority of the order's cell type, non-standard cell types last
+     */
+    public static int cellTypeRank(HICData data) {
+        return cellTypeRank(data.getCellType());
+    }
+
+    /**
+     * @return low-yield priority of the cell type label, non-standard cell types last
+     */
+    public static int cellTypeRank(String cellType) {
+        CellType knownCellType = CellType.fromLabel(cellType);
+        return knownCellType != null ? knownCellType.getLowYieldPriority() : CellType.count();
+    }
+
+    private double rateForPriority(HICData data) {
+        if (fulfillmentStats == null) {
+            return NO_HISTORY_RATE;
+        }
+        double rate = fulfillmentStats.fulfillmentRate(data.getName(), data.getCellType());
+        return rate < 0 ? NO_HISTORY_RATE : rate;
+    }
+
+    private int total(HICData data) {
+        FulfillmentStats.StatLine line = findLine(data);
+        return line == null ? 0 : line.fulfilled() + line.cancelled();
+    }
+
+    private int cancelled(HICData data) {
+        FulfillmentStats.StatLine line = findLine(data);
+        return line == null ? 0 : line.cancelled();
+    }
+
+    private FulfillmentStats.StatLine findLine(HICData data) {
+        return fulfillmentStats == null ? null : fulfillmentStats.findLine(data.getName(), data.getCellType());
+    }
+}
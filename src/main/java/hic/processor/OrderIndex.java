@@ -0,0 +1,363 @@
+package hic.processor;
+
+import hic.util.CellType;
+import hic.util.HICData;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Indexes over one dataset of orders, built once so that filters by requester, cell type and request date do
+ * not scan every order:
+ * <ul>
+ *     <li>a hash index from normalized requester name to the positions of that requester's orders,</li>
+ *     <li>one bitset of positions per cell type, plus one for non-standard cell types,</li>
+ *     <li>positions sorted by request date, searched with a binary search for date ranges.</li>
+ * </ul>
+ * A {@link Query} intersects the bitsets of its filters, so its cost follows the number of matching orders.
+ * Results keep dataset order. The index holds the orders it was built from and does not see later changes.
+ */
+public final class OrderIndex {
+
+    private static final int UNKNOWN_CELL_TYPE_INDEX = CellType.count();
+
+    private final List<HICData> orders;
+    private final Map<String, BitSet> byRequester = new HashMap<>();
+    private final BitSet[] byCellType = new BitSet[CellType.count() + 1];
+    private final int[] positionsByDate;
+    private final LocalDateTime[] sortedDates;
+    // Request second of each position, NO_DATE if the order has none, so date checks avoid the date objects
+    private final long[] requestSeconds;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private OrderIndex(List<HICData> orders) {
+        this.orders = orders;
+        for (int i = 0; i < byCellType.length; i++) {
+            byCellType[i] = new BitSet();
+        }
+
+        // The same few requesters place most orders, so each distinct spelling is normalized once
+        Map<String, BitSet> bySpelling = new HashMap<>();
+        int datedCount = 0;
+        requestSeconds = new long[orders.size()];
+        for (int position = 0; position < orders.size(); position++) {
+            HICData data = orders.get(position);
+            requestSeconds[position] = data.getRequestDate() == null
+                    ? NO_DATE : data.getRequestDate().toEpochSecond(ZoneOffset.UTC);
+            bySpelling.computeIfAbsent(data.getName(), name ->
+                    byRequester.computeIfAbsent(normalizeRequester(name), ignored -> new BitSet())).set(position);
+            CellType cellType = data.getKnownCellType();
+            byCellType[cellType == null ? UNKNOWN_CELL_TYPE_INDEX : cellType.ordinal()].set(position);
+            if (data.getRequestDate() != null) {
+                datedCount++;
+            }
+        }
+
+        // Orders without a request date never match a date filter
+        positionsByDate = sortByDate(orders, requestSeconds, datedCount);
+        sortedDates = new LocalDateTime[positionsByDate.length];
+        for (int i = 0; i < positionsByDate.length; i++) {
+            sortedDates[i] = orders.get(positionsByDate[i]).getRequestDate();
+        }
+    }
+
+    /**
+     * @return positions of the dated orders, earliest request first; orders of the same date in dataset order
+     */
+    private static int[] sortByDate(List<HICData> orders, long[] requestSeconds, int datedCount) {
+        long firstSecond = Long.MAX_VALUE;
+        long lastSecond = Long.MIN_VALUE;
+        boolean wholeSeconds = true;
+        for (int position = 0; position < orders.size(); position++) {
+            if (requestSeconds[position] != NO_DATE) {
+                firstSecond = Math.min(firstSecond, requestSeconds[position]);
+                lastSecond = Math.max(lastSecond, requestSeconds[position]);
+                wholeSeconds &= orders.get(position).getRequestDate().getNano() == 0;
+            }
+        }
+
+        int[] positions = new int[datedCount];
+        int positionBits = 32 - Integer.numberOfLeadingZeros(orders.size());
+        if (datedCount > 0 && wholeSeconds
+                && 64 - Long.numberOfLeadingZeros(lastSecond - firstSecond) + positionBits <= 63) {
+            // Pack the request second and the position into one long, so a primitive sort does the work
+            long[] packed = new long[datedCount];
+            for (int position = 0, i = 0; position < orders.size(); position++) {
+                if (requestSeconds[position] != NO_DATE) {
+                    packed[i++] = (requestSeconds[position] - firstSecond) << positionBits | position;
+                }
+            }
+            Arrays.sort(packed);
+            long positionMask = (1L << positionBits) - 1;
+            for (int i = 0; i < datedCount; i++) {
+                positions[i] = (int) (packed[i] & positionMask);
+            }
+            return positions;
+        }
+
+        Integer[] dated = new Integer[datedCount];
+        for (int position = 0, i = 0; position < orders.size(); position++) {
+            if (requestSeconds[position] != NO_DATE) {
+                dated[i++] = position;
+            }
+        }
+        Arrays.sort(dated, Comparator.comparing(position -> orders.get(position).getRequestDate()));
+        for (int i = 0; i < datedCount; i++) {
+            positions[i] = dated[i];
+        }
+        return positions;
+    }
+
+    /**
+     * @param hicData orders to index, copied so later changes to the list do not affect the index
+     * @return the index
+     */
+    public static OrderIndex of(List<HICData> hicData) {
+        return new OrderIndex(List.copyOf(hicData));
+    }
+
+    /**
+     * @return trimmed, lower case, with runs of whitespace collapsed to one space; Unknown if there is no name
+     */
+    public static String normalizeRequester(String name) {
+        String trimmed = name == null ? "" : name.trim().replaceAll("\\s+", " ");
+        return (trimmed.isEmpty() ? "Unknown" : trimmed).toLowerCase(Locale.ROOT);
+    }
+
+    public int size() {
+        return orders.size();
+    }
+
+    /**
+     * @return the indexed orders in dataset order
+     */
+    public List<HICData> getOrders() {
+        return orders;
+    }
+
+    /**
+     * @return a query matching every order until filters are added
+     */
+    public Query query() {
+        return new Query();
+    }
+
+    /**
+     * Filters over the index. Filters of different kinds must all match; values given to one filter, e.g. two
+     * cell types, match if any of them does.
+     */
+    public final class Query {
+
+        private BitSet requesters;
+        private BitSet cellTypes;
+        private LocalDateTime from;
+        private LocalDateTime to;
+        private boolean dateFiltered;
+
+        private Query() {
+        }
+
+        /**
+         * @param names requester names, matched after {@link #normalizeRequester(String)}
+         */
+        public Query requester(String... names) {
+            if (requesters == null) {
+                requesters = new BitSet();
+            }
+            for (String name : names) {
+                BitSet positions = byRequester.get(normalizeRequester(name));
+                if (positions != null) {
+                    requesters.or(positions);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @param types cell types to match; null matches orders with a non-standard cell type
+         */
+        public Query cellType(CellType... types) {
+            if (cellTypes == null) {
+                cellTypes = new BitSet();
+            }
+            for (CellType type : types) {
+                cellTypes.or(byCellType[type == null ? UNKNOWN_CELL_TYPE_INDEX : type.ordinal()]);
+            }
+            return this;
+        }
+
+        /**
+         * @param from first request date, inclusive, or null for no lower bound
+         * @param to   last request date, inclusive, or null for no upper bound
+         */
+        public Query requestedBetween(LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+            this.dateFiltered = true;
+            return this;
+        }
+
+        /**
+         * @param from first request date, inclusive
+         */
+        public Query requestedSince(LocalDateTime from) {
+            return requestedBetween(from, null);
+        }
+
+        /**
+         * @return positions in the dataset of the matching orders
+         */
+        public BitSet positions() {
+            BitSet matches = intersect(intersect(null, requesters), cellTypes);
+            if (dateFiltered) {
+                int start = from == null ? 0 : firstNotBefore(from);
+                int end = to == null ? sortedDates.length : firstAfter(to);
+                if (matches == null || matches.cardinality() > end - start) {
+                    matches = intersect(datePositions(start, end), matches);
+                } else {
+                    // Fewer candidates than orders in the date range, so check their dates directly
+                    long fromSecond = from == null ? NO_DATE : from.toEpochSecond(ZoneOffset.UTC);
+                    long toSecond = to == null ? Long.MAX_VALUE : to.toEpochSecond(ZoneOffset.UTC);
+                    for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1)) {
+                        if (!inDateRange(position, fromSecond, toSecond)) {
+                            matches.clear(position);
+                        }
+                    }
+                }
+            }
+            if (matches == null) {
+                matches = new BitSet(orders.size());
+                matches.set(0, orders.size());
+            }
+            return matches;
+        }
+
+        /**
+         * @return matching orders in dataset order
+         */
+        public List<HICData> list() {
+            BitSet matches = positions();
+            List<HICData> result = new ArrayList<>(matches.cardinality());
+            for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1)) {
+                result.add(orders.get(position));
+            }
+            return result;
+        }
+
+        public int count() {
+            return positions().cardinality();
+        }
+
+        /**
+         * @param key of each order, e.g. HICData::getName
+         * @return matching orders by key, keys in the order first seen
+         */
+        public <K> Map<K, List<HICData>> groupBy(Function<HICData, K> key) {
+            Map<K, List<HICData>> groups = new LinkedHashMap<>();
+            for (HICData data : list()) {
+                groups.computeIfAbsent(key.apply(data), ignored -> new ArrayList<>()).add(data);
+            }
+            return groups;
+        }
+
+        /**
+         * @return matching orders by normalized requester name
+         */
+        public Map<String, List<HICData>> groupByRequester() {
+            return groupBy(data -> normalizeRequester(data.getName()));
+        }
+
+        /**
+         * @return matching orders of standard cell types by cell type, in CellType order
+         */
+        public Map<CellType, List<HICData>> groupByCellType() {
+            BitSet matches = positions();
+            Map<CellType, List<HICData>> groups = new EnumMap<>(CellType.class);
+            for (CellType cellType : CellType.values()) {
+                BitSet positions = (BitSet) byCellType[cellType.ordinal()].clone();
+                positions.and(matches);
+                if (positions.isEmpty()) {
+                    continue;
+                }
+                List<HICData> group = new ArrayList<>(positions.cardinality());
+                for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+                    group.add(orders.get(position));
+                }
+                groups.put(cellType, group);
+            }
+            return groups;
+        }
+
+        private boolean inDateRange(int position, long fromSecond, long toSecond) {
+            long second = requestSeconds[position];
+            if (second == NO_DATE || second < fromSecond || second > toSecond) {
+                return false;
+            }
+            if (second > fromSecond && second < toSecond) {
+                return true;
+            }
+            // Same second as a bound, which may differ in fractions of a second
+            LocalDateTime requestDate = orders.get(position).getRequestDate();
+            return (from == null || !requestDate.isBefore(from)) && (to == null || !requestDate.isAfter(to));
+        }
+
+        private BitSet datePositions(int start, int end) {
+            BitSet positions = new BitSet(orders.size());
+            for (int i = start; i < end; i++) {
+                positions.set(positionsByDate[i]);
+            }
+            return positions;
+        }
+
+        private BitSet intersect(BitSet matches, BitSet filter) {
+            if (filter == null) {
+                return matches;
+            }
+            if (matches == null) {
+                return (BitSet) filter.clone();
+            }
+            matches.and(filter);
+            return matches;
+        }
+    }
+
+    private int firstNotBefore(LocalDateTime date) {
+        int low = 0;
+        int high = sortedDates.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedDates[middle].isBefore(date)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int firstAfter(LocalDateTime date) {
+        int low = 0;
+        int high = sortedDates.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedDates[middle].isAfter(date)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+}
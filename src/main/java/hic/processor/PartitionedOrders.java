@@ -0,0 +1,201 @@
+package hic.processor;
+
+import hic.datamanagement.HICDataComparator;
+import hic.util.CellType;
+import hic.util.HICData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The splits of one run's orders that the exports read, built in a single pass: CD4/CD8 against other cell
+ * types, incubator against deli fridge, orders grouped by cell type, and the CD4/CD8 orders of each requester.
+ * Build it once the orders are in their final order (sorted, for the workflow exports) and hand the same
+ * instance to every export, so none of them scans or groups the orders again.
+ */
+public final class PartitionedOrders {
+
+    private final List<HICData> orders;
+    private final List<HICData> cd4Cd8Orders = new ArrayList<>();
+    private final List<HICData> otherCellTypeOrders = new ArrayList<>();
+    private final List<HICData> incubatorOrders = new ArrayList<>();
+    private final List<HICData> deliFridgeOrders = new ArrayList<>();
+    private final Map<String, List<HICData>> byCellType = new LinkedHashMap<>();
+    private final Map<String, RequesterOrders> cd4Cd8Requesters = new LinkedHashMap<>();
+    // Counted the first time an export asks for them
+    private CancellationIndex cancellations;
+
+    private PartitionedOrders(List<HICData> orders) {
+        this.orders = Collections.unmodifiableList(orders);
+    }
+
+    /**
+     * @param hicData orders of the run, in the order the exports should list them
+     * @return the orders split for the exports
+     */
+    public static PartitionedOrders of(List<HICData> hicData) {
+        PartitionedOrders partitioned = new PartitionedOrders(hicData);
+
+        for (HICData data : hicData) {
+            CellType cellType = data.getKnownCellType();
+
+            if (cellType != null && cellType.isCd4OrCd8()) {
+                partitioned.cd4Cd8Orders.add(data);
+                String requesterName = requesterName(data.getName());
+                RequesterOrders requester = partitioned.cd4Cd8Requesters.computeIfAbsent(
+                        requesterName.toLowerCase(), ignored -> new RequesterOrders(requesterName));
+                OrderRequest orderRequest = new OrderRequest(data.getOrderNumber(), data.getMaxRequest(), data.getMinRequest());
+                if (cellType == CellType.CD4) {
+                    requester.cd4Orders.add(orderRequest);
+                } else {
+                    requester.cd8Orders.add(orderRequest);
+                }
+            } else {
+                partitioned.otherCellTypeOrders.add(data);
+            }
+
+            if (cellType != null && cellType.isIncubator()) {
+                partitioned.incubatorOrders.add(data);
+            } else {
+                partitioned.deliFridgeOrders.add(data);
+            }
+
+            partitioned.byCellType.computeIfAbsent(data.getCellType(), ignored -> new ArrayList<>()).add(data);
+        }
+
+        // The sign-out sheet lists both fridges by name
+        partitioned.incubatorOrders.sort(new HICDataComparator());
+        partitioned.deliFridgeOrders.sort(new HICDataComparator());
+        return partitioned;
+    }
+
+    /**
+     * @return every order, in the order given
+     */
+    public List<HICData> getOrders() {
+        return orders;
+    }
+
+    public List<HICData> getCd4Cd8Orders() {
+        return Collections.unmodifiableList(cd4Cd8Orders);
+    }
+
+    public List<HICData> getOtherCellTypeOrders() {
+        return Collections.unmodifiableList(otherCellTypeOrders);
+    }
+
+    /**
+     * @return incubator orders sorted by name
+     */
+    public List<HICData> getIncubatorOrders() {
+        return Collections.unmodifiableList(incubatorOrders);
+    }
+
+    /**
+     * @return deli fridge orders sorted by name
+     */
+    public List<HICData> getDeliFridgeOrders() {
+        return Collections.unmodifiableList(deliFridgeOrders);
+    }
+
+    /**
+     * @return orders by cell type as written, cell types in the order first seen
+     */
+    public Map<String, List<HICData>> getOrdersByCellType() {
+        return Collections.unmodifiableMap(byCellType);
+    }
+
+    /**
+     * @return the CD4/CD8 orders of each requester, requesters in the order first seen
+     */
+    public Collection<RequesterOrders> getCd4Cd8Requesters() {
+        return Collections.unmodifiableCollection(cd4Cd8Requesters.values());
+    }
+
+    /**
+     * @param name as written on an order
+     * @return the CD4/CD8 orders of the requester, or null if they have none
+     */
+    public RequesterOrders getCd4Cd8Requester(String name) {
+        return cd4Cd8Requesters.get(requesterName(name).toLowerCase());
+    }
+
+    /**
+     * @return recent cancellation counts of the orders, by order number and by requester
+     */
+    public synchronized CancellationIndex getCancellations() {
+        if (cancellations == null) {
+            cancellations = CancellationIndex.of(orders);
+        }
+        return cancellations;
+    }
+
+    /**
+     * @return the trimmed name, or Unknown if there is none
+     */
+    public static String requesterName(String name) {
+        String rawRequesterName = name == null ? "" : name.trim();
+        return rawRequesterName.isEmpty() ? "Unknown" : rawRequesterName;
+    }
+
+    /**
+     * CD4 and CD8 orders of one requester
+     */
+    public static final class RequesterOrders {
+        private final String name;
+        private final List<OrderRequest> cd4Orders = new ArrayList<>();
+        private final List<OrderRequest> cd8Orders = new ArrayList<>();
+
+        private RequesterOrders(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<OrderRequest> getCd4Orders() {
+            return Collections.unmodifiableList(cd4Orders);
+        }
+
+        public List<OrderRequest> getCd8Orders() {
+            return Collections.unmodifiableList(cd8Orders);
+        }
+
+        public boolean hasBoth() {
+            return !cd4Orders.isEmpty() && !cd8Orders.isEmpty();
+        }
+
+        public boolean hasOnlyCd4() {
+            return !cd4Orders.isEmpty() && cd8Orders.isEmpty();
+        }
+
+        public boolean hasOnlyCd8() {
+            return cd4Orders.isEmpty() && !cd8Orders.isEmpty();
+        }
+    }
+
+    /**
+     * Order number and requested amounts of one CD4 or CD8 order
+     */
+    public record OrderRequest(int orderNumber, double maxRequest, double minRequest) {
+
+        /**
+         * @return e.g. 52164 (Max: 10, Min: 2.5)
+         */
+        public String toDisplayText() {
+            return orderNumber + " (Max: " + formatRequest(maxRequest) + ", Min: " + formatRequest(minRequest) + ")";
+        }
+
+        private static String formatRequest(double request) {
+            if (request == Math.rint(request)) {
+                return String.valueOf((int) request);
+            }
+            return String.valueOf(request);
+        }
+    }
+}
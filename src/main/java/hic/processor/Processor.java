@@ -2,13 +2,16 @@ package hic.processor;
 
 import hic.datamanagement.FileReader;
 import hic.datamanagement.HICDataComparator;
+import hic.util.CellType;
 import hic.util.HICData;
+import hic.util.OrderTable;
+import hic.yield.DonorYieldRecord;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 public class Processor {
 
@@ -19,159 +22,61 @@ public class Processor {
     final String ROW_FORMAT_APHERESIS = "%-20s%-10.2f%-10.2f%n";
     final String BOLD_START = "\033[1m";
     final String BOLD_END = "\033[0m";
-    private static final double NK_FACTOR = 20.0 / 40.0;
-    private static final double CD8_FACTOR = 17.0 / 40.0;
-    private static final double CD4_FACTOR = 5.0 / 40.0;
-    private static final double MONOCYTES_FACTOR = 7.0 / 40.0;
-    private static final double TOTAL_T_FACTOR = 4.0 / 40.0;
-    private static final double B_CELLS_FACTOR = 20.0 / 40.0;
+    // Below this many orders the fork/join hand-off costs more than the summing; the totals are the same either way
+    static final int PARALLEL_SUMMARY_THRESHOLD = 65_536;
 
     public Processor(FileReader fileReader) {
         this.fileReader = fileReader;
     }
 
     /**
-     * Method to calculate total cell counts and print summary of orders
+     * Count the orders and total the max and min requests of every cell type in one pass
      * @param hicData to investigate
+     * @return totals per cell type, read by the summary, apheresis and donor-specific reports
      */
-    public List<Double> printHICSummary(List<HICData> hicData) throws HICDataNotFoundException {
+    public CellTypeSummary summarize(List<HICData> hicData) throws HICDataNotFoundException {
 
         if (hicData == null || hicData.isEmpty()) {
             throw new HICDataNotFoundException("No HIC Data Found. Please try again.");
         }
 
-        List<Double> maxAndMinOrders = new ArrayList<>();
-
-        // Initialize variables to store order #, max requests, min requests
-        int totalOrders = 0;
-
-        int cd4Orders = 0;
-        int cd8Orders = 0;
-        int totalTOrders = 0;
-        int pbmcOrders = 0;
-        int monocyteOrders = 0;
-        int nkOrders = 0;
-        int bOrders = 0;
-        int apheresisOrders = 0;
-        int topLayerFicollOrders = 0;
-        int bottomLayerFicollOrders = 0;
-
-        double cd4Max = 0;
-        double cd4Min = 0;
-        double cd8Max = 0;
-        double cd8Min = 0;
-        double totalTMax = 0;
-        double totalTMin = 0;
-        double monocytesMax = 0;
-        double monocytesMin = 0;
-        double pbmcMax = 0;
-        double pbmcMin = 0;
-        double nkMax = 0;
-        double nkMin = 0;
-        double bMax = 0;
-        double bMin = 0;
-        double apheresisMax = 0;
-        double apheresisMin = 0;
-        double topLayerFicollMax = 0;
-        double bottomLayerFicollMax = 0;
-        double topLayerFicollMin = 0;
-        double bottomLayerFicollMin = 0;
-
-        // Iterate over the hic data to extract the max and min requests
-        for (HICData data : hicData) {
+        if (hicData.size() >= PARALLEL_SUMMARY_THRESHOLD) {
+            return CellTypeSummary.of(hicData, ForkJoinPool.commonPool());
+        }
+        return CellTypeSummary.of(hicData);
+    }
 
-            if (Objects.equals(data.getCellType(), "CD4+")) {
-                cd4Orders++;
-                cd4Max += data.getMaxRequest();
-                cd4Min += data.getMinRequest();
-            } else if (Objects.equals(data.getCellType(), "CD8+")) {
-                cd8Orders++;
-                cd8Max += data.getMaxRequest();
-                cd8Min += data.getMinRequest();
-            } else if (Objects.equals(data.getCellType(), "Total T")) {
-                totalTOrders++;
-                totalTMax += data.getMaxRequest();
-                totalTMin += data.getMinRequest();
-            } else if (Objects.equals(data.getCellType(), "Monocytes")) {
-                monocyteOrders++;
-                monocytesMax += data.getMaxRequest();
-                monocytesMin += data.getMinRequest();
-            } else if (Objects.equals(data.getCellType(), "PBMC")) {
-                pbmcOrders++;
-                pbmcMax += data.getMaxRequest();
-                pbmcMin += data.getMinRequest();
-            } else if (Objects.equals(data.getCellType(), "NK Cells")) {
-                nkOrders++;
-                nkMax += data.getMaxRequest();
-                nkMin += data.getMinRequest();
-            } else if (Objects.equals(data.getCellType(), "B Cells")) {
-                bOrders++;
-                bMax += data.getMaxRequest();
-                bMin += data.getMinRequest();
-            } else if (Objects.equals(data.getCellType(), "Unpurified Apheresis")) {
-                apheresisOrders++;
-                apheresisMax += data.getMaxRequest();
-                apheresisMin += data.getMinRequest();
-            } else if (Objects.equals(data.getCellType(), "Top Layer Ficoll")) {
-                topLayerFicollOrders++;
-                topLayerFicollMax += data.getMaxRequest();
-                topLayerFicollMin += data.getMinRequest();
-            } else if (Objects.equals(data.getCellType(), "Bottom Layer Ficoll")) {
-                bottomLayerFicollOrders++;
-                bottomLayerFicollMax += data.getMaxRequest();
-                bottomLayerFicollMin += data.getMinRequest();
-            }
+    /**
+     * Same as {@link #summarize(List)}, summed straight from the columns of an order table
+     * @param orderTable to investigate
+     */
+    public CellTypeSummary summarize(OrderTable orderTable) throws HICDataNotFoundException {
+
+        if (orderTable == null || orderTable.isEmpty()) {
+            throw new HICDataNotFoundException("No HIC Data Found. Please try again.");
         }
 
-        // Add total orders for each cell type to totalOrders variable
-        totalOrders = nkOrders + cd8Orders + cd4Orders + monocyteOrders + pbmcOrders + totalTOrders +
-                bOrders + apheresisOrders + topLayerFicollOrders + bottomLayerFicollOrders;
-
-//        // Print out the summary
-//        System.out.println("\n----------------------------------------------------------------------");
-//        System.out.println("Summary:\n");
-//        //System.out.print(BOLD_START); // Start bold formatting
-//        System.out.printf(HEADER_FORMAT, "Cell Type", "Total Requests", "Max", "Min");
-//        //System.out.print(BOLD_END); // End bold formatting
-//        System.out.println();
-//
-//        // Print individual rows of cells/apheresis
-//        printRow("B Cells", bOrders, bMax, bMin);
-//        printRow("NK Cells", nkOrders, nkMax, nkMin);
-//        printRow("CD8+ T", cd8Orders, cd8Max, cd8Min);
-//        printRow("CD4+ T", cd4Orders, cd4Max, cd4Min);
-//        printRow("Monocytes", monocyteOrders, monocytesMax, monocytesMin);
-//        printRow("PBMC", pbmcOrders, pbmcMax, pbmcMin);
-//        printRow("Total T", totalTOrders, totalTMax, totalTMin);
-//        printRow("Unpurified Apheresis", apheresisOrders, apheresisMax, apheresisMin);
-//        printRow("Top Layer Ficoll", topLayerFicollOrders, topLayerFicollMax, topLayerFicollMin);
-//        printRow("Bottom Layer Ficoll", bottomLayerFicollOrders, bottomLayerFicollMax, bottomLayerFicollMin);
-//
-//        // Print total orders
-//        System.out.println();
-//        System.out.println("Total Orders: " + totalOrders);
-//        System.out.println("----------------------------------------------------------------------");
-
-        // Add max and min cell orders to maxAndMinOrders arraylist
-        maxAndMinOrders.add(nkMax);
-        maxAndMinOrders.add(nkMin);
-        maxAndMinOrders.add(cd8Max);
-        maxAndMinOrders.add(cd8Min);
-        maxAndMinOrders.add(cd4Max);
-        maxAndMinOrders.add(cd4Min);
-        maxAndMinOrders.add(monocytesMax);
-        maxAndMinOrders.add(monocytesMin);
-        maxAndMinOrders.add(totalTMax);
-        maxAndMinOrders.add(totalTMin);
-        maxAndMinOrders.add(bMax);
-        maxAndMinOrders.add(bMin);
-        maxAndMinOrders.add(topLayerFicollMax);
-        maxAndMinOrders.add(topLayerFicollMin);
-        maxAndMinOrders.add(bottomLayerFicollMax);
-        maxAndMinOrders.add(bottomLayerFicollMin);
-
-        //System.out.println(maxAndMinOrders);
-        return maxAndMinOrders;
+        if (orderTable.size() >= PARALLEL_SUMMARY_THRESHOLD) {
+            return CellTypeSummary.of(orderTable, ForkJoinPool.commonPool());
+        }
+        return CellTypeSummary.of(orderTable);
+    }
+
+    /**
+     * Method to calculate total cell counts and print summary of orders
+     * @param hicData to investigate
+     * @return max then min totals per cell type, see {@link CellTypeSummary#toMaxAndMinList()}
+     */
+    public List<Double> printHICSummary(List<HICData> hicData) throws HICDataNotFoundException {
+        return summarize(hicData).toMaxAndMinList();
+    }
+
+    /**
+     * Same as {@link #printHICSummary(List)}, summed straight from the columns of an order table
+     * @param orderTable to investigate
+     */
+    public List<Double> printHICSummary(OrderTable orderTable) throws HICDataNotFoundException {
+        return summarize(orderTable).toMaxAndMinList();
     }
 
     /**
@@ -190,101 +95,42 @@ public class Processor {
      * @param hicData to investigate
      */
     public String getHICSummaryString(List<HICData> hicData) throws HICDataNotFoundException {
+        return getHICSummaryString(summarize(hicData));
+    }
 
-        if (hicData == null || hicData.isEmpty()) {
-            throw new HICDataNotFoundException("No HIC Data Found. Please try again.");
-        }
+    /**
+     * Same as {@link #getHICSummaryString(List)}, summed straight from the columns of an order table
+     * @param orderTable to investigate
+     */
+    public String getHICSummaryString(OrderTable orderTable) throws HICDataNotFoundException {
+        return getHICSummaryString(summarize(orderTable));
+    }
 
+    /**
+     * Method to return the summary of orders as a string
+     * @param cellTypeSummary totals per cell type
+     */
+    public String getHICSummaryString(CellTypeSummary cellTypeSummary) {
         StringBuilder summary = new StringBuilder();
-        List<Double> maxAndMinOrders = new ArrayList<>();
-
-        // Initialize variables to store order counts and request values
-        int totalOrders = 0, cd4Orders = 0, cd8Orders = 0, monocyteOrders = 0, pbmcOrders = 0, nkOrders = 0, bOrders = 0, bottomLayerOrders = 0, topLayerOrders = 0, totalTOrders = 0, unpurifiedAphOrders = 0;
-        double cd4Max = 0, cd8Max = 0, monocyteMax = 0, pbmcMax = 0, nkMax = 0, bMax = 0, totalTMax = 0, topLayerMax = 0, bottomLayerMax = 0, unpurifiedAphMax = 0;
-        double cd4Min = 0, cd8Min = 0, monocyteMin = 0, pbmcMin = 0, nkMin = 0, bMin = 0, totalTMin = 0, topLayerMin = 0, bottomLayerMin = 0, unpurifiedAphMin = 0;
-
-        for (HICData data : hicData) {
-            switch (data.getCellType()) {
-                case "CD4+" -> {
-                    cd4Orders++;
-                    cd4Max += data.getMaxRequest();
-                    cd4Min += data.getMinRequest();
-                }
-                case "CD8+" -> {
-                    cd8Orders++;
-                    cd8Max += data.getMaxRequest();
-                    cd8Min += data.getMinRequest();
-                }
-                case "PBMC" -> {
-                    pbmcOrders++;
-                    pbmcMax += data.getMaxRequest();
-                    pbmcMin += data.getMinRequest();
-                }
-                case "Monocytes" -> {
-                    monocyteOrders++;
-                    monocyteMax += data.getMaxRequest();
-                    monocyteMin += data.getMinRequest();
-                }
-                case "NK Cells" -> {
-                    nkOrders++;
-                    nkMax += data.getMaxRequest();
-                    nkMin += data.getMinRequest();
-                }
-                case "B Cells" -> {
-                    bOrders++;
-                    bMax += data.getMaxRequest();
-                    bMin += data.getMinRequest();
-                }
-                case "Total T" -> {
-                    totalTOrders++;
-                    totalTMax += data.getMaxRequest();
-                    totalTMin += data.getMinRequest();
-                }
-                case "Top Layer Ficoll" -> {
-                    topLayerOrders++;
-                    topLayerMax += data.getMaxRequest();
-                    topLayerMin += data.getMinRequest();
-                }
-                case "Bottom Layer Ficoll" -> {
-                    bottomLayerOrders++;
-                    bottomLayerMax += data.getMaxRequest();
-                    bottomLayerMin += data.getMinRequest();
-                }
-                case "Unpurified Apheresis" -> {
-                    unpurifiedAphOrders++;
-                    unpurifiedAphMax += data.getMaxRequest();
-                    unpurifiedAphMin += data.getMinRequest();
-                }
-            }
-        }
-
-        // Add total orders
-        totalOrders = cd4Orders + cd8Orders + pbmcOrders + nkOrders + bOrders + totalTOrders + monocyteOrders + topLayerOrders + bottomLayerOrders + unpurifiedAphOrders;
 
-        // Format the summary text
         // Format the summary text with dividers and aligned headers
         summary.append("=====================================================\n");
         summary.append("                   HIC Order Summary           \n");
         summary.append("=====================================================\n");
 
-// Add column headers with padding
+        // Add column headers with padding
         summary.append(String.format("%-20s %-12s %-10s %-10s%n", "Cell Type", "Requests", "Max", "Min"));
         summary.append("-----------------------------------------------------\n");
 
-// Append each row with data
-        summary.append(String.format("%-20s %-12d %-10.2f %-10.2f%n", "B Cells", bOrders, bMax, bMin));
-        summary.append(String.format("%-20s %-12d %-10.2f %-10.2f%n", "NK Cells", nkOrders, nkMax, nkMin));
-        summary.append(String.format("%-20s %-12d %-10.2f %-10.2f%n", "CD8+ T", cd8Orders, cd8Max, cd8Min));
-        summary.append(String.format("%-20s %-12d %-10.2f %-10.2f%n", "CD4+ T", cd4Orders, cd4Max, cd4Min));
-        summary.append(String.format("%-20s %-12d %-10.2f %-10.2f%n", "Monocytes", monocyteOrders, monocyteMax, monocyteMin));
-        summary.append(String.format("%-20s %-12d %-10.2f %-10.2f%n", "PBMC", pbmcOrders, pbmcMax, pbmcMin));
-        summary.append(String.format("%-20s %-12d %-10.2f %-10.2f%n", "Total T", totalTOrders, totalTMax, totalTMin));
-        summary.append(String.format("%-20s %-12d %-10.2f %-10.2f%n", "Apheresis", unpurifiedAphOrders, unpurifiedAphMax, unpurifiedAphMin));
-        summary.append(String.format("%-20s %-12d %-10.2f %-10.2f%n", "Top Ficoll", topLayerOrders, topLayerMax, topLayerMin));
-        summary.append(String.format("%-20s %-12d %-10.2f %-10.2f%n", "Bottom Ficoll", bottomLayerOrders, bottomLayerMax, bottomLayerMin));
+        // Append each row with data
+        for (CellType cellType : CellType.values()) {
+            summary.append(String.format("%-20s %-12d %-10.2f %-10.2f%n", cellType.getSummaryLabel(),
+                    cellTypeSummary.getOrderCount(cellType), cellTypeSummary.getMaxRequest(cellType),
+                    cellTypeSummary.getMinRequest(cellType)));
+        }
 
         summary.append("-----------------------------------------------------\n");
-        summary.append(String.format("%-20s %-12d%n", "Total Orders:", totalOrders));
+        summary.append(String.format("%-20s %-12d%n", "Total Orders:", cellTypeSummary.getTotalOrders()));
         summary.append("=====================================================\n");
 
         return summary.toString();
@@ -296,9 +142,17 @@ public class Processor {
      * @return formatted string for display
      */
     public String getApheresisCalculationString(List<Double> maxAndMinRequests) {
+        return getApheresisCalculationString(CellTypeSummary.fromMaxAndMinList(maxAndMinRequests));
+    }
+
+    /**
+     * Method to calculate apheresis requirements and return the summary as a string
+     * @param cellTypeSummary totals per cell type
+     * @return formatted string for display
+     */
+    public String getApheresisCalculationString(CellTypeSummary cellTypeSummary) {
         StringBuilder apheresisSummary = new StringBuilder();
-        Map<String, double[]> byCell = calculateDefaultApheresisByCell(maxAndMinRequests);
-        double[] totals = getApheresisTotals(byCell);
+        double[] totals = cellTypeSummary.getApheresisTotals();
 
         // Format the calculation text
         apheresisSummary.append("========================================\n");
@@ -310,11 +164,11 @@ public class Processor {
         apheresisSummary.append("----------------------------------------\n");
 
         // Append each row with data
-        apheresisSummary.append(String.format("%-20s %-10.2f %-10.2f%n", "NK Cells", byCell.get("NK Cells")[0], byCell.get("NK Cells")[1]));
-        apheresisSummary.append(String.format("%-20s %-10.2f %-10.2f%n", "CD8 Cells", byCell.get("CD8+")[0], byCell.get("CD8+")[1]));
-        apheresisSummary.append(String.format("%-20s %-10.2f %-10.2f%n", "CD4 Cells", byCell.get("CD4+")[0], byCell.get("CD4+")[1]));
-        apheresisSummary.append(String.format("%-20s %-10.2f %-10.2f%n", "Monocytes", byCell.get("Monocytes")[0], byCell.get("Monocytes")[1]));
-        apheresisSummary.append(String.format("%-20s %-10.2f %-10.2f%n", "Total T", byCell.get("Total T")[0], byCell.get("Total T")[1]));
+        appendApheresisRow(apheresisSummary, "NK Cells", cellTypeSummary, CellType.NK_CELLS);
+        appendApheresisRow(apheresisSummary, "CD8 Cells", cellTypeSummary, CellType.CD8);
+        appendApheresisRow(apheresisSummary, "CD4 Cells", cellTypeSummary, CellType.CD4);
+        appendApheresisRow(apheresisSummary, "Monocytes", cellTypeSummary, CellType.MONOCYTES);
+        appendApheresisRow(apheresisSummary, "Total T", cellTypeSummary, CellType.TOTAL_T);
 
         // Total apheresis section with additional divider
         apheresisSummary.append("----------------------------------------\n");
@@ -324,25 +178,40 @@ public class Processor {
         return apheresisSummary.toString();
     }
 
+    private void appendApheresisRow(StringBuilder apheresisSummary, String label, CellTypeSummary cellTypeSummary, CellType cellType) {
+        apheresisSummary.append(String.format("%-20s %-10.2f %-10.2f%n", label,
+                cellTypeSummary.getApheresisMax(cellType), cellTypeSummary.getApheresisMin(cellType)));
+    }
+
     public Map<String, double[]> calculateDefaultApheresisByCell(List<Double> maxAndMinRequests) {
+        return calculateDefaultApheresisByCell(CellTypeSummary.fromMaxAndMinList(maxAndMinRequests));
+    }
+
+    /**
+     * @param cellTypeSummary totals per cell type
+     * @return {max, min} apheresis by cell type label, in CellTypeSummary.APHERESIS_CELL_TYPES order
+     */
+    public Map<String, double[]> calculateDefaultApheresisByCell(CellTypeSummary cellTypeSummary) {
         Map<String, double[]> result = new LinkedHashMap<>();
-        result.put("NK Cells", new double[]{maxAndMinRequests.get(0) * NK_FACTOR, maxAndMinRequests.get(1) * NK_FACTOR});
-        result.put("CD8+", new double[]{maxAndMinRequests.get(2) * CD8_FACTOR, maxAndMinRequests.get(3) * CD8_FACTOR});
-        result.put("CD4+", new double[]{maxAndMinRequests.get(4) * CD4_FACTOR, maxAndMinRequests.get(5) * CD4_FACTOR});
-        result.put("Monocytes", new double[]{maxAndMinRequests.get(6) * MONOCYTES_FACTOR, maxAndMinRequests.get(7) * MONOCYTES_FACTOR});
-        result.put("Total T", new double[]{maxAndMinRequests.get(8) * TOTAL_T_FACTOR, maxAndMinRequests.get(9) * TOTAL_T_FACTOR});
-        result.put("B Cells", new double[]{maxAndMinRequests.get(10) * B_CELLS_FACTOR, maxAndMinRequests.get(11) * B_CELLS_FACTOR});
+        for (CellType cellType : CellTypeSummary.APHERESIS_CELL_TYPES) {
+            result.put(cellType.getLabel(), new double[]{cellTypeSummary.getApheresisMax(cellType), cellTypeSummary.getApheresisMin(cellType)});
+        }
         return result;
     }
 
     public Map<String, double[]> calculateRequestedCellsByCell(List<Double> maxAndMinRequests) {
+        return calculateRequestedCellsByCell(CellTypeSummary.fromMaxAndMinList(maxAndMinRequests));
+    }
+
+    /**
+     * @param cellTypeSummary totals per cell type
+     * @return {max, min} requested cells by cell type label, in CellTypeSummary.APHERESIS_CELL_TYPES order
+     */
+    public Map<String, double[]> calculateRequestedCellsByCell(CellTypeSummary cellTypeSummary) {
         Map<String, double[]> result = new LinkedHashMap<>();
-        result.put("NK Cells", new double[]{maxAndMinRequests.get(0), maxAndMinRequests.get(1)});
-        result.put("CD8+", new double[]{maxAndMinRequests.get(2), maxAndMinRequests.get(3)});
-        result.put("CD4+", new double[]{maxAndMinRequests.get(4), maxAndMinRequests.get(5)});
-        result.put("Monocytes", new double[]{maxAndMinRequests.get(6), maxAndMinRequests.get(7)});
-        result.put("Total T", new double[]{maxAndMinRequests.get(8), maxAndMinRequests.get(9)});
-        result.put("B Cells", new double[]{maxAndMinRequests.get(10), maxAndMinRequests.get(11)});
+        for (CellType cellType : CellTypeSummary.APHERESIS_CELL_TYPES) {
+            result.put(cellType.getLabel(), new double[]{cellTypeSummary.getMaxRequest(cellType), cellTypeSummary.getMinRequest(cellType)});
+        }
         return result;
     }
 
@@ -357,6 +226,17 @@ public class Processor {
         return new double[]{totalMaxNeeded, totalMinNeeded};
     }
 
+    /**
+     * Rank every donor in the yield history by the apheresis today's requests would take from them, see
+     * {@link DonorRanking}
+     * @param cellTypeSummary totals of the run
+     * @param latestByDonor   each donor's records of their most recent donation, by donor id
+     * @return donors, smallest requirement first
+     */
+    public DonorRanking rankDonors(CellTypeSummary cellTypeSummary, Map<String, List<DonorYieldRecord>> latestByDonor) {
+        return DonorRanking.rank(cellTypeSummary, latestByDonor);
+    }
+
 
     /**
      * Method to print a single row for apheresis summary
@@ -369,56 +249,69 @@ public class Processor {
     }
 
 
+    /**
+     * Sort the orders in place by cell type (unknown cell types last) and then by request date,
+     * see {@link SortedOrders}. A list that is already a SortedOrders is left as it is.
+     * @param hicData to sort
+     */
     public void sortByCellTypeAndDateTime(List<HICData> hicData) throws HICDataNotFoundException {
 
         if (hicData == null || hicData.isEmpty()) {
             throw new HICDataNotFoundException("No HIC Data Found. Please try again.");
         }
 
-        // Define a custom comparator
-        Comparator<HICData> customComparator = new Comparator<HICData>() {
+        if (hicData instanceof SortedOrders) {
+            return;
+        }
 
-            // Define order of cell types
-            String[] cellTypeOrder = {"B Cells", "NK Cells", "CD8+", "CD4+", "Monocytes", "PBMC", "Total T", "Unpurified Apheresis", "Top Layer Ficoll", "Bottom Layer Ficoll"};
+        ListIterator<HICData> target = hicData.listIterator();
+        for (HICData data : SortedOrders.of(hicData)) {
+            target.next();
+            target.set(data);
+        }
+    }
 
-            @Override
-            public int compare(HICData data1, HICData data2) {
+    /**
+     * Sort the orders once for a run. The result can be passed to every export, including ones that sort
+     * their input again, without being sorted a second time.
+     * @param hicData to sort, not changed
+     * @return the orders by cell type and then by request date
+     */
+    public SortedOrders sortedByCellTypeAndDateTime(List<HICData> hicData) throws HICDataNotFoundException {
 
-                // Get the index of each cell type
-                int index1 = getIndex(data1.getCellType());
-                int index2 = getIndex(data2.getCellType());
+        if (hicData == null || hicData.isEmpty()) {
+            throw new HICDataNotFoundException("No HIC Data Found. Please try again.");
+        }
 
-                // Compare the indices to determine order
-                int cellTypeComparison = Integer.compare(index1, index2);
+        return SortedOrders.of(hicData);
+    }
 
-                if (cellTypeComparison != 0) {
-                    // If cell types are different, return the comparison result
-                    return cellTypeComparison;
-                } else {
-                    // If cell types are the same, compare dates and times
-                    return data1.getRequestDate().compareTo(data2.getRequestDate());
-                }
-            }
+    /**
+     * Split the orders for the exports in one pass, see {@link PartitionedOrders}
+     * @param hicData orders of the run, in the order the exports should list them
+     * @return CD4/CD8 and other, incubator and deli fridge, by cell type and by requester
+     */
+    public PartitionedOrders partition(List<HICData> hicData) throws HICDataNotFoundException {
 
-            private int getIndex(String cellType) {
+        if (hicData == null || hicData.isEmpty()) {
+            throw new HICDataNotFoundException("No HIC Data Found. Please try again.");
+        }
 
-                for (int i = 0; i < cellTypeOrder.length; i++) {
-                    if (cellTypeOrder[i].equalsIgnoreCase(cellType)) {
-                        return i;
-                    }
-                }
-                // If the cell type is not found in the order, consider it as last
-                return cellTypeOrder.length;
-            }
+        return PartitionedOrders.of(hicData);
+    }
 
-        };
+    /**
+     * Index the orders once for repeated filtering by requester, cell type and request date, see {@link OrderIndex}
+     * @param hicData orders of one or more days
+     * @return the index; e.g. index.query().requester(name).cellType(CellType.CD8).requestedSince(date).list()
+     */
+    public OrderIndex index(List<HICData> hicData) throws HICDataNotFoundException {
 
-        // Sort the list using the custom comparator
-        hicData.sort(customComparator);
+        if (hicData == null || hicData.isEmpty()) {
+            throw new HICDataNotFoundException("No HIC Data Found. Please try again.");
+        }
 
-//        for (HICData data : hicData) {
-//            System.out.println(data);
-//        }
+        return OrderIndex.of(hicData);
     }
 
     /**
@@ -436,7 +329,7 @@ public class Processor {
 
         for (HICData data : hicData) {
 
-            if (Objects.equals(data.getCellType(), "CD4+") || Objects.equals(data.getCellType(), "CD8+")) {
+            if (isCd4OrCd8(data)) {
                 cd4Cd8Records.add(data);
             }
         }
@@ -459,7 +352,7 @@ public class Processor {
 
         for (HICData data : hicData) {
 
-            if (!Objects.equals(data.getCellType(), "CD4+") && !Objects.equals(data.getCellType(), "CD8+")) {
+            if (!isCd4OrCd8(data)) {
                 otherCellTypeRecords.add(data);
                 //System.out.println(data);
             }
@@ -484,7 +377,7 @@ public class Processor {
 
         for (HICData data : hicData) {
 
-            if (Objects.equals(data.getCellType(), "CD4+") || Objects.equals(data.getCellType(), "CD8+" ) || Objects.equals(data.getCellType(), "Total T" ) || Objects.equals(data.getCellType(), "NK Cells" ) || Objects.equals(data.getCellType(), "B Cells" )) {
+            if (isIncubatorCell(data)) {
                 incubatorCells.add(data);
             }
         }
@@ -511,7 +404,7 @@ public class Processor {
 
         for (HICData data : hicData) {
 
-            if (!Objects.equals(data.getCellType(), "CD4+") && !Objects.equals(data.getCellType(), "CD8+" ) && !Objects.equals(data.getCellType(), "Total T" ) && !Objects.equals(data.getCellType(), "NK Cells" ) && !Objects.equals(data.getCellType(), "B Cells" )) {
+            if (!isIncubatorCell(data)) {
                 deliFridgeCells.add(data);
             }
         }
@@ -521,4 +414,14 @@ public class Processor {
         return deliFridgeCells;
     }
 
+    private static boolean isCd4OrCd8(HICData data) {
+        CellType cellType = data.getKnownCellType();
+        return cellType != null && cellType.isCd4OrCd8();
+    }
+
+    private static boolean isIncubatorCell(HICData data) {
+        CellType cellType = data.getKnownCellType();
+        return cellType != null && cellType.isIncubator();
+    }
+
 }
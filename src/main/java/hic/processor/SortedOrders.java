@@ -0,0 +1,157 @@
+package hic.processor;
+
+import hic.util.CellType;
+import hic.util.HICData;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Orders sorted by cell type (unknown cell types last) and then by request date, earliest first, with equal
+ * orders kept in input order. Orders without a request date come first within their cell type.
+ * <p>
+ * Each order gets one packed long key, the cell type index in the high bits and its request second in the low
+ * bits. A counting sort on the cell type index puts the orders into buckets, and a bucket is only sorted further
+ * if its dates are out of order. The list cannot be modified, so a run can sort once and hand the same instance
+ * to every export; {@link Processor#sortByCellTypeAndDateTime(List)} recognises it and does not sort again.
+ */
+public final class SortedOrders extends AbstractList<HICData> implements RandomAccess {
+
+    // Low bits of a key hold the request second relative to the earliest one, plus one so no date is 0
+    private static final int CELL_TYPE_SHIFT = 40;
+    private static final long SECONDS_MASK = (1L << CELL_TYPE_SHIFT) - 1;
+    private static final int UNKNOWN_CELL_TYPE_INDEX = CellType.count();
+
+    // Used when dates carry fractions of a second or span more than SECONDS_MASK seconds
+    private static final Comparator<HICData> COMPARATOR = Comparator
+            .comparingInt(SortedOrders::cellTypeSortIndex)
+            .thenComparing(HICData::getRequestDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final HICData[] orders;
+
+    private SortedOrders(HICData[] orders) {
+        this.orders = orders;
+    }
+
+    /**
+     * @param hicData orders in any order, not changed
+     * @return the orders sorted by cell type and request date, or hicData itself if it is already a SortedOrders
+     */
+    public static SortedOrders of(List<HICData> hicData) {
+        if (hicData instanceof SortedOrders) {
+            return (SortedOrders) hicData;
+        }
+
+        HICData[] records = hicData.toArray(new HICData[0]);
+        long firstSecond = Long.MAX_VALUE;
+        long lastSecond = Long.MIN_VALUE;
+        for (HICData record : records) {
+            LocalDateTime requestDate = record.getRequestDate();
+            if (requestDate == null) {
+                continue;
+            }
+            if (requestDate.getNano() != 0) {
+                Arrays.sort(records, COMPARATOR);
+                return new SortedOrders(records);
+            }
+            long second = requestDate.toEpochSecond(ZoneOffset.UTC);
+            firstSecond = Math.min(firstSecond, second);
+            lastSecond = Math.max(lastSecond, second);
+        }
+        if (firstSecond != Long.MAX_VALUE && lastSecond - firstSecond >= SECONDS_MASK) {
+            Arrays.sort(records, COMPARATOR);
+            return new SortedOrders(records);
+        }
+
+        // One key per order, and the size of each cell type's bucket
+        long[] keys = new long[records.length];
+        int[] bucketStarts = new int[UNKNOWN_CELL_TYPE_INDEX + 2];
+        for (int i = 0; i < records.length; i++) {
+            keys[i] = sortKey(records[i], firstSecond);
+            bucketStarts[(int) (keys[i] >>> CELL_TYPE_SHIFT) + 1]++;
+        }
+        for (int bucket = 1; bucket < bucketStarts.length; bucket++) {
+            bucketStarts[bucket] += bucketStarts[bucket - 1];
+        }
+
+        // Counting sort by cell type, stable because orders are placed in input order
+        HICData[] sorted = new HICData[records.length];
+        long[] sortedKeys = new long[records.length];
+        int[] next = Arrays.copyOf(bucketStarts, bucketStarts.length - 1);
+        for (int i = 0; i < records.length; i++) {
+            int position = next[(int) (keys[i] >>> CELL_TYPE_SHIFT)]++;
+            sorted[position] = records[i];
+            sortedKeys[position] = keys[i];
+        }
+
+        for (int bucket = 0; bucket + 1 < bucketStarts.length; bucket++) {
+            sortBucket(sorted, sortedKeys, bucketStarts[bucket], bucketStarts[bucket + 1]);
+        }
+        return new SortedOrders(sorted);
+    }
+
+    @Override
+    public HICData get(int index) {
+        return orders[index];
+    }
+
+    @Override
+    public int size() {
+        return orders.length;
+    }
+
+    /**
+     * Sort one cell type's orders by date, keeping orders of the same second in their current order
+     */
+    private static void sortBucket(HICData[] sorted, long[] sortedKeys, int from, int to) {
+        boolean inOrder = true;
+        for (int i = from + 1; i < to && inOrder; i++) {
+            inOrder = sortedKeys[i - 1] <= sortedKeys[i];
+        }
+        if (inOrder) {
+            return;
+        }
+
+        // Pack the date and the position in the bucket into one long, so a primitive sort is stable
+        int positionBits = 32 - Integer.numberOfLeadingZeros(to - from);
+        long largestSecond = 0;
+        for (int i = from; i < to; i++) {
+            largestSecond = Math.max(largestSecond, sortedKeys[i] & SECONDS_MASK);
+        }
+        if (64 - Long.numberOfLeadingZeros(largestSecond) + positionBits > 63) {
+            Arrays.sort(sorted, from, to, COMPARATOR);
+            return;
+        }
+
+        long[] packed = new long[to - from];
+        for (int i = from; i < to; i++) {
+            packed[i - from] = (sortedKeys[i] & SECONDS_MASK) << positionBits | (i - from);
+        }
+        Arrays.sort(packed);
+
+        HICData[] bucket = Arrays.copyOfRange(sorted, from, to);
+        long positionMask = (1L << positionBits) - 1;
+        for (int i = 0; i < packed.length; i++) {
+            sorted[from + i] = bucket[(int) (packed[i] & positionMask)];
+        }
+    }
+
+    private static long sortKey(HICData record, long firstSecond) {
+        LocalDateTime requestDate = record.getRequestDate();
+        long second = requestDate == null ? 0 : requestDate.toEpochSecond(ZoneOffset.UTC) - firstSecond + 1;
+        return (long) cellTypeSortIndex(record) << CELL_TYPE_SHIFT | second;
+    }
+
+    private static int cellTypeSortIndex(HICData data) {
+        CellType cellType = data.getKnownCellType();
+        if (cellType == null) {
+            cellType = CellType.fromLabelIgnoreCase(data.getCellType());
+        }
+        return cellType == null ? UNKNOWN_CELL_TYPE_INDEX : cellType.ordinal();
+    }
+}
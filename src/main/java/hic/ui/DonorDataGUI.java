@@ -1,15 +1,28 @@
 package hic.ui;
 
-import hic.datamanagement.TXTFileParser;
+import hic.datamanagement.BatchFileLoader;
+import hic.datamanagement.FileReader;
+import hic.datamanagement.IncrementalTXTParser;
+import hic.datamanagement.OrderSnapshot;
 import hic.hiccell.CompleteFulfillmentReport;
 import hic.hiccell.FulfillmentReport;
 import hic.hiccell.FulfillmentReportService;
 import hic.hiccell.FulfillmentStats;
 import hic.hiccell.FulfillmentStatsService;
 import hic.hiccell.HicCellMonthViewScraper;
+import hic.hiccell.OrderReconciliation;
+import hic.logging.ExportPipeline;
 import hic.logging.HICExcelLogger;
+import hic.processor.CellTypeSummary;
+import hic.processor.DonorRanking;
+import hic.processor.FillPlanner;
 import hic.processor.HICDataNotFoundException;
+import hic.processor.LowYieldPriority;
+import hic.processor.PartitionedOrders;
 import hic.processor.Processor;
+import hic.processor.SortedOrders;
+import hic.util.CellType;
+import hic.util.FieldDecoders;
 import hic.util.HICData;
 import hic.yield.DonorYieldRecord;
 import hic.yield.GoogleSheetDonorYieldService;
@@ -22,6 +35,10 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
@@ -40,11 +57,13 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.Vector;
 import java.util.prefs.Preferences;
 
 public class DonorDataGUI extends JFrame {
@@ -72,6 +91,7 @@ public class DonorDataGUI extends JFrame {
     private static final String PREF_LABEL_TEMPLATE = "hic.template.label";
     private static final String PREF_SIGNOUT_TEMPLATE = "hic.template.signout";
     private static final String PREF_DONOR_HISTORY_SHEET_URL = "hic.donor.history.sheet.url";
+    private static final String PREF_INPUT_FOLDER = "hic.input.folder";
     private static final String PREF_SETUP_COMPLETE = "hic.setup.complete";
 
     private static final String DEFAULT_OUTPUT_DIR = "Output Files";
@@ -81,17 +101,13 @@ public class DonorDataGUI extends JFrame {
     private static final int REQUIRED_JAVA_MAJOR = 17;
     private static final String ORACLE_JDK_17_URL = "https://www.oracle.com/java/technologies/javase/jdk17-archive-downloads.html";
 
-    private static final Set<String> VALID_CELL_TYPES = Set.of(
-            "CD4+", "CD8+", "Total T", "Monocytes", "PBMC", "NK Cells", "B Cells",
-            "Unpurified Apheresis", "Top Layer Ficoll", "Bottom Layer Ficoll"
-    );
-
     private JTextField donorField;
     private JTextArea dataArea;
     private JTextPane outputArea;
     private JTextArea validationArea;
     private JTextArea historyArea;
     private JTextArea fulfillmentArea;
+    private JTextArea liveTotalsArea;
     private JTextPane donorSpecificApheresisArea;
     private JTabbedPane feedbackTabs;
     private JLabel runStatusValueLabel;
@@ -113,15 +129,33 @@ public class DonorDataGUI extends JFrame {
     private JTable previewTable;
     private DefaultTableModel previewModel;
 
-    private String lastParsedInputHash = "";
+    // Delay between the last keystroke in the input area and the preview update
+    private static final int PREVIEW_SYNC_DELAY_MS = 150;
+    // Delay between the last preview table change and the Live Totals redraw
+    private static final int LIVE_TOTALS_DELAY_MS = 100;
+    // Donors listed in the Donor Specific Apheresis tab by Rank Donors
+    private static final int DONOR_RANKING_ROWS = 25;
+    // Preview column showing where each order stands in the scraped Month View, read-only
+    private static final int MONTH_VIEW_COLUMN = 8;
+
+    private final IncrementalTXTParser inputParser = new IncrementalTXTParser();
+    private Timer previewSyncTimer;
+    // Totals of the preview table, updated row by row as it changes
+    private PreviewSummaryListener previewSummary;
+    private Timer liveTotalsTimer;
+    private long inputRevision = 0;
+    private long previewRevision = 0;
+    private boolean previewFollowsInput = true;
     private final StringBuilder rawLogHtml = new StringBuilder();
     private int rawLogMaxLineLength = 0;
     private String lastDonorSpecificReportText = "Donor-specific report will appear here.";
     private FulfillmentStats lastFulfillmentStats;
+    private OrderReconciliation monthViewReconciliation;
+    // Template found for each configured path and default name, checked again before it is reused
+    private final Map<TemplateLookup, Path> resolvedTemplatePaths = new HashMap<>();
 
     private final HICExcelLogger hicExcelLogger;
     private final Processor processor;
-    private final TXTFileParser txtFileParser;
     private final GoogleSheetDonorYieldService donorYieldService;
     private final FulfillmentStatsService fulfillmentStatsService;
     private final FulfillmentReportService fulfillmentReportService;
@@ -130,7 +164,6 @@ public class DonorDataGUI extends JFrame {
     public DonorDataGUI(HICExcelLogger hicExcelLogger, Processor processor) {
         this.hicExcelLogger = hicExcelLogger;
         this.processor = processor;
-        this.txtFileParser = new TXTFileParser();
         this.donorYieldService = new GoogleSheetDonorYieldService();
         HicCellMonthViewScraper monthViewScraper = new HicCellMonthViewScraper();
         this.fulfillmentStatsService = new FulfillmentStatsService(monthViewScraper);
@@ -294,13 +327,15 @@ public class DonorDataGUI extends JFrame {
                 new EmptyBorder(8, 8, 8, 8)
         ));
 
-        JPanel buttons = new JPanel(new GridLayout(1, 6, 8, 0));
+        JPanel buttons = new JPanel(new GridLayout(1, 8, 8, 0));
         buttons.setOpaque(false);
 
         JButton summaryButton = createActionButton("Get HIC Summary", PRIMARY_COLOR, PRIMARY_HOVER, e -> runAction("Get HIC Summary", "Generated HIC summary", this::getHICSummary));
         JButton apheresisButton = createActionButton("Calculate Apheresis", PRIMARY_COLOR, PRIMARY_HOVER, e -> runAction("Calculate Apheresis", "Calculated apheresis", this::calculateApheresis));
         JButton labelButton = createActionButton("Make Labels", PRIMARY_COLOR, PRIMARY_HOVER, e -> runAction("Make Labels", "Generated labels", this::makeLabels));
         JButton signOutButton = createActionButton("Export Sign-Out Sheet", PRIMARY_COLOR, PRIMARY_HOVER, e -> runAction("Export Sign-Out Sheet", "Exported sign-out sheet", this::exportToSignOutSheet));
+        JButton fillPlanButton = createActionButton("Plan Donor Fill", PRIMARY_COLOR, PRIMARY_HOVER, e -> runAction("Plan Donor Fill", "Exported donor fill plan", this::planDonorFill));
+        JButton rankDonorsButton = createActionButton("Rank Donors", PRIMARY_COLOR, PRIMARY_HOVER, e -> runAction("Rank Donors", "Ranked donors", this::rankDonors));
         JButton performAllButton = createActionButton("Perform All Actions", ACCENT_COLOR, ACCENT_HOVER, e -> runActionQuiet("Completed full workflow", this::performAllActions));
         JButton clearOutputButton = createActionButton("Clear Output", DANGER_COLOR, DANGER_HOVER, e -> {
             rawLogHtml.setLength(0);
@@ -317,6 +352,8 @@ public class DonorDataGUI extends JFrame {
         buttons.add(apheresisButton);
         buttons.add(labelButton);
         buttons.add(signOutButton);
+        buttons.add(fillPlanButton);
+        buttons.add(rankDonorsButton);
         buttons.add(performAllButton);
         buttons.add(clearOutputButton);
 
@@ -372,20 +409,23 @@ public class DonorDataGUI extends JFrame {
         dataArea.setRows(10);
         dataArea.setColumns(40);
 
+        previewSyncTimer = new Timer(PREVIEW_SYNC_DELAY_MS, e -> syncPreviewFromInput());
+        previewSyncTimer.setRepeats(false);
+
         dataArea.getDocument().addDocumentListener(new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent e) {
-                markInputChanged();
+                inputEdited(e);
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
-                markInputChanged();
+                inputEdited(e);
             }
 
             @Override
             public void changedUpdate(DocumentEvent e) {
-                markInputChanged();
+                // Attribute changes only, the text is unchanged
             }
         });
 
@@ -402,7 +442,7 @@ public class DonorDataGUI extends JFrame {
         JPanel card = createCard("Workflow Actions");
         card.setLayout(new BorderLayout(0, 14));
 
-        JPanel grid = new JPanel(new GridLayout(5, 2, 10, 10));
+        JPanel grid = new JPanel(new GridLayout(6, 2, 10, 10));
         grid.setOpaque(false);
 
         JButton summaryButton = createActionButton("Get HIC Summary", PRIMARY_COLOR, PRIMARY_HOVER, e -> runAction("Get HIC Summary", "Generated HIC summary", this::getHICSummary));
@@ -413,6 +453,8 @@ public class DonorDataGUI extends JFrame {
         JButton signOutButton = createActionButton("Export Sign-Out Sheet", PRIMARY_COLOR, PRIMARY_HOVER, e -> runAction("Export Sign-Out Sheet", "Exported sign-out sheet", this::exportToSignOutSheet));
         JButton labOwnerFulfillmentButton = createActionButton("Identify by: Lab Owner", PRIMARY_COLOR, PRIMARY_HOVER, e -> runAction("Identify by Lab Owner", "Exported fulfillment report", () -> exportFulfillmentReport(FulfillmentReport.GroupBy.LAB_OWNER)));
         JButton orderedByFulfillmentButton = createActionButton("Identify by: Ordered By", PRIMARY_COLOR, PRIMARY_HOVER, e -> runAction("Identify by Ordered By", "Exported fulfillment report", () -> exportFulfillmentReport(FulfillmentReport.GroupBy.ORDERED_BY)));
+        JButton fillPlanButton = createActionButton("Plan Donor Fill", PRIMARY_COLOR, PRIMARY_HOVER, e -> runAction("Plan Donor Fill", "Exported donor fill plan", this::planDonorFill));
+        JButton rankDonorsButton = createActionButton("Rank Donors", PRIMARY_COLOR, PRIMARY_HOVER, e -> runAction("Rank Donors", "Ranked donors", this::rankDonors));
         JButton performAllButton = createActionButton("Perform All Actions", ACCENT_COLOR, ACCENT_HOVER, e -> runAction("Perform All Actions", "Completed full workflow", this::performAllActions));
         JButton clearOutputButton = createActionButton("Clear Output", DANGER_COLOR, DANGER_HOVER, e -> {
             outputArea.setText("");
@@ -428,6 +470,8 @@ public class DonorDataGUI extends JFrame {
         grid.add(signOutButton);
         grid.add(labOwnerFulfillmentButton);
         grid.add(orderedByFulfillmentButton);
+        grid.add(fillPlanButton);
+        grid.add(rankDonorsButton);
         grid.add(performAllButton);
         grid.add(clearOutputButton);
 
@@ -454,13 +498,18 @@ public class DonorDataGUI extends JFrame {
         JPanel card = createCard("Parsed Preview (Editable)", javax.swing.border.TitledBorder.CENTER);
         card.setLayout(new BorderLayout(0, 10));
 
-        previewModel = new DefaultTableModel(new Object[]{"Row", "Order #", "Request Date", "Name", "Cell Type", "Max", "Min", "Cancellations"}, 0) {
+        previewModel = new DefaultTableModel(new Object[]{"Row", "Order #", "Request Date", "Name", "Cell Type", "Max", "Min", "Cancellations", "Month View"}, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
-                return column != 0;
+                return column != 0 && column != MONTH_VIEW_COLUMN;
             }
         };
 
+        liveTotalsTimer = new Timer(LIVE_TOTALS_DELAY_MS, e -> refreshLiveTotals());
+        liveTotalsTimer.setRepeats(false);
+        previewSummary = new PreviewSummaryListener(4, 5, 6, liveTotalsTimer::restart);
+        previewModel.addTableModelListener(previewSummary);
+
         previewTable = new JTable(previewModel);
         previewTable.setFont(BODY_FONT);
         previewTable.setRowHeight(24);
@@ -480,13 +529,18 @@ public class DonorDataGUI extends JFrame {
         actions.setOpaque(false);
 
         JButton reparseButton = createActionButton("Re-Parse from Input", PRIMARY_COLOR, PRIMARY_HOVER, e -> parseAndPreview());
+        JButton openSnapshotButton = createActionButton("Open Snapshot", PRIMARY_COLOR, PRIMARY_HOVER, e -> openSnapshot());
+        JButton loadFolderButton = createActionButton("Load Folder", PRIMARY_COLOR, PRIMARY_HOVER, e -> loadInputFolder());
         JButton clearTableButton = createActionButton("Clear Table", DANGER_COLOR, DANGER_HOVER, e -> {
             previewModel.setRowCount(0);
+            previewFollowsInput = false;
             recordsLabel.setText("Parsed records: 0");
             setStatus("Preview table cleared.");
         });
 
         actions.add(reparseButton);
+        actions.add(openSnapshotButton);
+        actions.add(loadFolderButton);
         actions.add(clearTableButton);
 
         card.add(actions, BorderLayout.NORTH);
@@ -546,6 +600,16 @@ public class DonorDataGUI extends JFrame {
         fulfillmentArea.setColumns(48);
         fulfillmentArea.setText("Fulfillment results will appear here after Make Labels or Perform All Actions.");
 
+        liveTotalsArea = new JTextArea();
+        liveTotalsArea.setEditable(false);
+        liveTotalsArea.setFont(MONO_FONT);
+        liveTotalsArea.setLineWrap(false);
+        liveTotalsArea.setWrapStyleWord(false);
+        liveTotalsArea.setBorder(new EmptyBorder(10, 10, 10, 10));
+        liveTotalsArea.setRows(14);
+        liveTotalsArea.setColumns(48);
+        liveTotalsArea.setText("Totals follow the preview table as rows are parsed and edited.");
+
         donorSpecificApheresisArea = new JTextPane() {
             @Override
             public boolean getScrollableTracksViewportWidth() {
@@ -574,6 +638,7 @@ public class DonorDataGUI extends JFrame {
         donorSpecificScroll.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED);
 
         feedbackTabs.addTab("Summary", rawLogScroll);
+        feedbackTabs.addTab("Live Totals", new JScrollPane(liveTotalsArea));
         feedbackTabs.addTab("Fulfillment", new JScrollPane(fulfillmentArea));
         feedbackTabs.addTab("Donor Specific Apheresis", donorSpecificScroll);
         feedbackTabs.addTab("Validation", new JScrollPane(validationArea));
@@ -750,13 +815,193 @@ public class DonorDataGUI extends JFrame {
         return fulfillmentReportCellTypeCheck;
     }
 
+    /**
+     * Re-parse the lines touched by an edit of the input area. The line range comes from the change to the
+     * document's line elements; an edit inside a single line has no element change.
+     */
+    private void inputEdited(DocumentEvent e) {
+        Document document = e.getDocument();
+        Element root = document.getDefaultRootElement();
+        DocumentEvent.ElementChange change = e.getChange(root);
+
+        int firstLine;
+        int removedLines;
+        int addedLines;
+        if (change != null) {
+            firstLine = change.getIndex();
+            removedLines = change.getChildrenRemoved().length;
+            addedLines = change.getChildrenAdded().length;
+        } else {
+            firstLine = root.getElementIndex(e.getOffset());
+            removedLines = 1;
+            addedLines = 1;
+        }
+
+        try {
+            if (inputParser.getLineCount() - removedLines + addedLines != root.getElementCount()) {
+                throw new IllegalStateException("Input line tracking out of step");
+            }
+
+            List<String> lines = new ArrayList<>(addedLines);
+            for (int i = 0; i < addedLines; i++) {
+                lines.add(lineText(document, root.getElement(firstLine + i)));
+            }
+            inputParser.replaceLines(firstLine, removedLines, lines);
+        } catch (BadLocationException | IllegalStateException ex) {
+            inputParser.reset(dataArea.getText());
+            previewFollowsInput = false;
+        }
+
+        markInputChanged();
+    }
+
+    private String lineText(Document document, Element line) throws BadLocationException {
+        int start = line.getStartOffset();
+        int end = Math.min(line.getEndOffset(), document.getLength());
+        String text = document.getText(start, end - start);
+        return text.endsWith("\n") ? text.substring(0, text.length() - 1) : text;
+    }
+
     private void markInputChanged() {
-        String currentHash = hashText(dataArea.getText());
-        if (!currentHash.equals(lastParsedInputHash)) {
-            setStatus("Input changed. Re-parse recommended.");
+        inputRevision++;
+        setStatus("Input changed. Updating preview...");
+        previewSyncTimer.restart();
+    }
+
+    /**
+     * Bring the preview table up to date with the input area, replacing only the rows whose input lines changed.
+     * Edits made in the table to other rows are kept.
+     */
+    private void syncPreviewFromInput() {
+        previewSyncTimer.stop();
+        if (previewRevision == inputRevision) {
+            return;
+        }
+
+        if (previewTable.isEditing()) {
+            previewTable.getCellEditor().stopCellEditing();
+        }
+
+        IncrementalTXTParser.RecordChange change = inputParser.takeRecordChange();
+        if (previewFollowsInput) {
+            applyPreviewChange(change);
+        } else {
+            fillPreview(inputParser.getRecords());
+            previewFollowsInput = true;
+        }
+        previewRevision = inputRevision;
+
+        int rowCount = previewModel.getRowCount();
+        recordsLabel.setText("Parsed records: " + rowCount);
+        runRecordsValueLabel.setText(String.valueOf(rowCount));
+
+        int failedLine = inputParser.getFirstFailedLine();
+        setStatus(failedLine < 0
+                ? "Input changed. Preview updated."
+                : "Line " + (failedLine + 1) + ": request id must be a number.");
+    }
+
+    private void applyPreviewChange(IncrementalTXTParser.RecordChange change) {
+        if (change.isEmpty()) {
+            return;
+        }
+
+        Vector<Vector<Object>> rows = previewRows();
+        int from = change.from();
+
+        if (change.removedCount() > 0) {
+            rows.subList(from, from + change.removedCount()).clear();
+            previewModel.fireTableRowsDeleted(from, from + change.removedCount() - 1);
+        }
+
+        List<HICData> added = change.addedRecords();
+        if (!added.isEmpty()) {
+            List<Vector<Object>> addedRows = new ArrayList<>(added.size());
+            for (int i = 0; i < added.size(); i++) {
+                addedRows.add(new Vector<>(Arrays.asList(previewRow(from + i + 1, added.get(i)))));
+            }
+            rows.addAll(from, addedRows);
+            previewModel.fireTableRowsInserted(from, from + added.size() - 1);
+        }
+
+        // Rows below the change moved, so renumber them
+        if (change.removedCount() != added.size()) {
+            int renumberFrom = from + added.size();
+            for (int row = renumberFrom; row < rows.size(); row++) {
+                rows.get(row).set(0, row + 1);
+            }
+            if (renumberFrom < rows.size()) {
+                previewModel.fireTableChanged(new TableModelEvent(previewModel, renumberFrom, rows.size() - 1, 0));
+            }
+        }
+    }
+
+    /**
+     * @return the preview table's rows, to change several cells with one table event instead of one each
+     */
+    @SuppressWarnings("unchecked")
+    private Vector<Vector<Object>> previewRows() {
+        // DefaultTableModel only ever holds rows of Objects, but declares them as a raw Vector
+        return (Vector<Vector<Object>>) (Vector<?>) previewModel.getDataVector();
+    }
+
+    private void fillPreview(List<HICData> records) {
+        previewModel.setRowCount(0);
+        for (int i = 0; i < records.size(); i++) {
+            previewModel.addRow(previewRow(i + 1, records.get(i)));
+        }
+    }
+
+    private Object[] previewRow(int rowNumber, HICData record) {
+        return new Object[]{
+                rowNumber,
+                record.getOrderNumber(),
+                // Left blank for the user to fill in; running an action asks for it
+                record.getRequestDate() == null ? "" : DATE_TIME_FORMATTER.format(record.getRequestDate()),
+                record.getName(),
+                record.getCellType(),
+                record.getMaxRequest(),
+                record.getMinRequest(),
+                record.getRecentlyCancelledRequests(),
+                monthViewText(record)
+        };
+    }
+
+    private String monthViewText(HICData record) {
+        return monthViewReconciliation == null ? "" : monthViewReconciliation.match(record).toDisplayText();
+    }
+
+    /**
+     * Rewrite the Month View column from the latest reconciliation
+     *
+     * @param data orders read from the preview table, in row order
+     */
+    private void refreshMonthViewColumn(List<HICData> data) {
+        if (data.size() != previewModel.getRowCount()) {
+            return;
+        }
+        Vector<Vector<Object>> rows = previewRows();
+        for (int row = 0; row < rows.size(); row++) {
+            rows.get(row).set(MONTH_VIEW_COLUMN, monthViewText(data.get(row)));
+        }
+        if (!rows.isEmpty()) {
+            previewModel.fireTableChanged(new TableModelEvent(previewModel, 0, rows.size() - 1, MONTH_VIEW_COLUMN));
         }
     }
 
+    /**
+     * Redraw the Live Totals tab from the running totals of the preview table
+     */
+    private void refreshLiveTotals() {
+        if (liveTotalsArea == null) {
+            return;
+        }
+        CellTypeSummary cellTypeSummary = previewSummary.getSummary().toSummary();
+        liveTotalsArea.setText(processor.getHICSummaryString(cellTypeSummary) + "\n"
+                + processor.getApheresisCalculationString(cellTypeSummary));
+        liveTotalsArea.setCaretPosition(0);
+    }
+
     private void runAction(String actionName, String successStatus, Runnable action) {
         setStatus("Running...");
         beginRunSummary(actionName);
@@ -1501,29 +1746,26 @@ public class DonorDataGUI extends JFrame {
                 throw new HICDataNotFoundException("No HIC Data Found. Please paste HIC input text.");
             }
 
-            txtFileParser.parseFromString(input);
-            List<HICData> parsed = txtFileParser.getHICData();
-            if (parsed == null || parsed.isEmpty()) {
-                throw new HICDataNotFoundException("No records parsed. Confirm the input format and try again.");
+            // Full rebuild of the line cache, so the preview starts over from the input text
+            previewSyncTimer.stop();
+            inputParser.reset(input);
+            previewRevision = inputRevision;
+
+            int failedLine = inputParser.getFirstFailedLine();
+            if (failedLine >= 0) {
+                throw new HICDataNotFoundException("Line " + (failedLine + 1) + ": request id must be a number. "
+                        + inputParser.getFailure(failedLine).getMessage());
             }
 
-            previewModel.setRowCount(0);
-            for (int i = 0; i < parsed.size(); i++) {
-                HICData record = parsed.get(i);
-                previewModel.addRow(new Object[]{
-                        i + 1,
-                        record.getOrderNumber(),
-                        DATE_TIME_FORMATTER.format(record.getRequestDate()),
-                        record.getName(),
-                        record.getCellType(),
-                        record.getMaxRequest(),
-                        record.getMinRequest(),
-                        record.getRecentlyCancelledRequests()
-                });
+            List<HICData> parsed = inputParser.getRecords();
+            if (parsed.isEmpty()) {
+                throw new HICDataNotFoundException("No records parsed. Confirm the input format and try again.");
             }
 
+            fillPreview(parsed);
+            previewFollowsInput = true;
+
             recordsLabel.setText("Parsed records: " + parsed.size());
-            lastParsedInputHash = hashText(input);
 
             ValidationResult result = validateData(input, parsed);
             appendValidation(formatValidation(result));
@@ -1540,8 +1782,15 @@ public class DonorDataGUI extends JFrame {
             throw new HICDataNotFoundException("Donor number is required for labels and sign-out exports.");
         }
 
-        String currentHash = hashText(dataArea.getText());
-        if (previewModel.getRowCount() == 0 || !currentHash.equals(lastParsedInputHash)) {
+        // Apply any input edit the preview has not caught up with yet
+        syncPreviewFromInput();
+
+        int failedLine = inputParser.getFirstFailedLine();
+        if (failedLine >= 0) {
+            throw new HICDataNotFoundException("Line " + (failedLine + 1) + ": request id must be a number. Fix input and parse again.");
+        }
+
+        if (previewModel.getRowCount() == 0) {
             parseAndPreview();
             if (previewModel.getRowCount() == 0) {
                 throw new HICDataNotFoundException("No parsed data available. Fix input and parse again.");
@@ -1564,13 +1813,13 @@ public class DonorDataGUI extends JFrame {
         List<HICData> data = new ArrayList<>();
         for (int row = 0; row < previewModel.getRowCount(); row++) {
             try {
-                int orderNumber = Integer.parseInt(String.valueOf(previewModel.getValueAt(row, 1)).trim());
+                int orderNumber = previewInt(previewModel.getValueAt(row, 1));
                 String requestDateRaw = String.valueOf(previewModel.getValueAt(row, 2)).trim();
-                LocalDateTime requestDate = LocalDateTime.parse(requestDateRaw, DATE_TIME_FORMATTER);
+                LocalDateTime requestDate = FieldDecoders.parseDateTime(requestDateRaw);
                 String name = String.valueOf(previewModel.getValueAt(row, 3)).trim();
                 String cellType = String.valueOf(previewModel.getValueAt(row, 4)).trim();
-                double max = Double.parseDouble(String.valueOf(previewModel.getValueAt(row, 5)).trim());
-                double min = Double.parseDouble(String.valueOf(previewModel.getValueAt(row, 6)).trim());
+                double max = previewDouble(previewModel.getValueAt(row, 5));
+                double min = previewDouble(previewModel.getValueAt(row, 6));
                 String cancellations = previewModel.getColumnCount() > 7
                         ? String.valueOf(previewModel.getValueAt(row, 7)).trim()
                         : "";
@@ -1587,6 +1836,23 @@ public class DonorDataGUI extends JFrame {
         return data;
     }
 
+    /**
+     * Parsed rows hold Integer/Double cells until they are edited, so only edited cells need decoding
+     */
+    private int previewInt(Object value) {
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
+        return FieldDecoders.parseInt(String.valueOf(value).trim());
+    }
+
+    private double previewDouble(Object value) {
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        return FieldDecoders.parseDecimal(String.valueOf(value).trim());
+    }
+
     private ValidationResult validateData(String rawInput, List<HICData> data) {
         ValidationResult result = new ValidationResult();
 
@@ -1607,7 +1873,7 @@ public class DonorDataGUI extends JFrame {
 
             if (tokens.length >= 3) {
                 try {
-                    LocalDateTime.parse(tokens[1] + " " + tokens[2], DATE_TIME_FORMATTER);
+                    FieldDecoders.parseDateTime(tokens[1] + " " + tokens[2]);
                 } catch (DateTimeParseException ex) {
                     result.errors.add("Line " + lineNo + ": invalid date/time format. Expected yyyy-MM-dd HH:mm:ss.");
                 }
@@ -1628,7 +1894,7 @@ public class DonorDataGUI extends JFrame {
         }
 
         for (HICData row : data) {
-            if (!VALID_CELL_TYPES.contains(row.getCellType())) {
+            if (row.getKnownCellType() == null) {
                 result.warnings.add("Row " + row.getID() + ": non-standard cell type '" + row.getCellType() + "'.");
             }
 
@@ -1678,27 +1944,9 @@ public class DonorDataGUI extends JFrame {
             return false;
         }
 
-        for (int i = 0; i < tokens.length; i++) {
-            String token = tokens[i]
-                    .replaceAll("[^A-Za-z0-9+]", "")
-                    .toLowerCase();
-
-            if (token.isBlank()) {
-                continue;
-            }
-
-            if (token.equals("cd4+") || token.equals("cd8+") || token.equals("pbmc")
-                    || token.equals("monocytes") || token.equals("total")
-                    || token.equals("unpurified") || token.equals("top")
-                    || token.equals("bottom")) {
-                return true;
-            }
-
-            if (token.equals("nk") || token.equals("nkcells")) {
-                return true;
-            }
-
-            if (token.equals("b") || token.equals("bcells")) {
+        // A LIMS keyword (CD4+, NK, Total, ...) or a spelled out label (NKCells, BCells, ...) counts
+        for (String token : tokens) {
+            if (CellType.fromLimsToken(token) != null || CellType.resolve(token) != null) {
                 return true;
             }
         }
@@ -1767,9 +2015,11 @@ public class DonorDataGUI extends JFrame {
                 fulfillmentArea.setCaretPosition(0);
             }
             appendOutputStatus("SUCCESS", "Checked 3-week fulfillment for priority ranking.");
+            showReconciliation(stats.getReconciliation(), data);
             return stats;
         } catch (Exception e) {
             lastFulfillmentStats = null;
+            showReconciliation(null, data);
             String message = e.getMessage() == null ? "Unexpected scraping error." : e.getMessage();
             if (fulfillmentArea != null) {
                 fulfillmentArea.setText("Fulfillment check failed.\n\n"
@@ -1783,9 +2033,23 @@ public class DonorDataGUI extends JFrame {
         }
     }
 
+    private void showReconciliation(OrderReconciliation reconciliation, List<HICData> data) {
+        monthViewReconciliation = reconciliation;
+        refreshMonthViewColumn(data);
+        if (reconciliation == null) {
+            return;
+        }
+
+        Map<OrderReconciliation.Status, Integer> counts = reconciliation.countByStatus(data);
+        appendOutputStatus("INFO", String.format("Month View check: %d delivered, %d cancelled, %d resubmissions, %d new.",
+                counts.get(OrderReconciliation.Status.DELIVERED), counts.get(OrderReconciliation.Status.CANCELLED),
+                counts.get(OrderReconciliation.Status.RESUBMISSION), counts.get(OrderReconciliation.Status.NEW)));
+    }
+
     private FulfillmentStats fulfillmentStatsForPriorityExport(List<HICData> data) {
         if (fulfillmentStatsCheck != null && !fulfillmentStatsCheck.isSelected()) {
             lastFulfillmentStats = null;
+            showReconciliation(null, data);
             if (fulfillmentArea != null) {
                 fulfillmentArea.setText("Fulfillment stats scraper skipped.\n\n"
                         + "Use Fulfillment Stats is turned off. Low_Yield_Order_Priority.xlsx will mark fulfillment as unavailable.");
@@ -1803,7 +2067,8 @@ public class DonorDataGUI extends JFrame {
         String action = "Get HIC Summary";
         try {
             List<HICData> data = prepareData(false);
-            String summaryText = processor.getHICSummaryString(data);
+            // The preview table passed validation, so its running totals are the totals of data
+            String summaryText = processor.getHICSummaryString(previewSummary.getSummary().toSummary());
             appendOutput(summaryText);
             addRunStep("Summary generated");
             writeAudit(action, true, data.size(), List.of(), "");
@@ -1816,10 +2081,10 @@ public class DonorDataGUI extends JFrame {
         String action = "Calculate Apheresis";
         try {
             List<HICData> data = prepareData(false);
-            List<Double> maxAndMinRequests = processor.printHICSummary(data);
-            String apheresisText = processor.getApheresisCalculationString(maxAndMinRequests);
+            CellTypeSummary cellTypeSummary = previewSummary.getSummary().toSummary();
+            String apheresisText = processor.getApheresisCalculationString(cellTypeSummary);
             appendOutput(apheresisText);
-            setDonorSpecificReport(buildDonorSpecificApheresisReport(maxAndMinRequests));
+            setDonorSpecificReport(buildDonorSpecificApheresisReport(cellTypeSummary));
             addRunStep("Apheresis calculated");
             writeAudit(action, true, data.size(), List.of(), "");
         } catch (Exception e) {
@@ -1847,8 +2112,7 @@ public class DonorDataGUI extends JFrame {
     private void exportToExcelSorted() {
         String action = "Export Sorted";
         try {
-            List<HICData> data = prepareData(false);
-            processor.sortByCellTypeAndDateTime(data);
+            List<HICData> data = processor.sortedByCellTypeAndDateTime(prepareData(false));
             String output = outputPath("SortedHICList.xlsx");
 
             hicExcelLogger.logHICData(data, output, true);
@@ -2131,22 +2395,135 @@ public class DonorDataGUI extends JFrame {
         }
     }
 
+    private void planDonorFill() {
+        String action = "Plan Donor Fill";
+        try {
+            List<HICData> data = prepareData(false);
+            CellTypeSummary cellTypeSummary = previewSummary.getSummary().toSummary();
+            Double availableVolume = promptForApheresisVolume(cellTypeSummary);
+            if (availableVolume == null) {
+                setStatus("Action cancelled.");
+                appendOutputStatus("INFO", "Donor fill plan cancelled.");
+                return;
+            }
+
+            String donor = donorField.getText().trim();
+            Map<CellType, Double> donorFactors = donorApheresisFactors(donor);
+            FillPlanner planner = new FillPlanner(donorFactors);
+            FulfillmentStats fulfillmentStats = fulfillmentStatsForPriorityExport(data);
+            FillPlanner.FillPlan plan = planner.plan(data, availableVolume, new LowYieldPriority(fulfillmentStats));
+
+            String output = outputPath("Donor_Fill_Plan.xlsx");
+            hicExcelLogger.exportFillPlan(plan, output, donor);
+            appendOutput("Donor Fill Plan (" + (donorFactors.isEmpty() ? "default factors" : "donor history factors") + ")\n"
+                    + plan.describe());
+            appendOutput("Exported donor fill plan to: " + output);
+            addRunStep("Fill plan created");
+            addGeneratedFile(output);
+            writeAudit(action, true, data.size(), List.of(output), "");
+        } catch (Exception e) {
+            handleActionError(action, e, 0, List.of());
+        }
+    }
+
+    private Double promptForApheresisVolume(CellTypeSummary cellTypeSummary) throws HICDataNotFoundException {
+        double[] totals = cellTypeSummary.getApheresisTotals();
+        JTextField volumeField = new JTextField(10);
+
+        JPanel panel = new JPanel(new GridLayout(2, 2, 8, 8));
+        panel.add(new JLabel("Apheresis Available"));
+        panel.add(volumeField);
+        panel.add(new JLabel("Needed (Max / Min)"));
+        panel.add(new JLabel(String.format("%.2f / %.2f", totals[0], totals[1])));
+
+        int result = JOptionPane.showConfirmDialog(
+                this,
+                panel,
+                "Donor Fill Plan",
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE
+        );
+        if (result != JOptionPane.OK_OPTION) {
+            return null;
+        }
+
+        try {
+            double volume = Double.parseDouble(volumeField.getText().trim());
+            if (volume < 0 || !Double.isFinite(volume)) {
+                throw new HICDataNotFoundException("Apheresis available must be zero or more.");
+            }
+            return volume;
+        } catch (NumberFormatException e) {
+            throw new HICDataNotFoundException("Enter the apheresis available as a number.");
+        }
+    }
+
+    /**
+     * @return apheresis per requested cell from the donor's most recent history, by cell type; empty when there is
+     * no usable history, so the planner keeps the default factors
+     */
+    private Map<CellType, Double> donorApheresisFactors(String donorId) {
+        String sheetUrl = donorHistorySheetUrl();
+        if (donorId.isBlank() || sheetUrl.isBlank()) {
+            return Map.of();
+        }
+
+        try {
+            return DonorRanking.factorsFrom(donorYieldService.getMostRecentDonationByCellType(sheetUrl, donorId));
+        } catch (IOException e) {
+            appendOutputStatus("INFO", "Donor history unavailable; planning with default factors.");
+            return Map.of();
+        }
+    }
+
+    private void rankDonors() {
+        String action = "Rank Donors";
+        try {
+            List<HICData> data = prepareData(false);
+            String sheetUrl = donorHistorySheetUrl();
+            if (sheetUrl.isBlank()) {
+                throw new HICDataNotFoundException("No Google Sheet URL configured. Add it in Settings/Setup Wizard.");
+            }
+
+            CellTypeSummary cellTypeSummary = previewSummary.getSummary().toSummary();
+            Map<String, List<DonorYieldRecord>> latestByDonor = donorYieldService.getMostRecentDonationsByDonor(sheetUrl);
+            DonorRanking ranking = processor.rankDonors(cellTypeSummary, latestByDonor);
+            setDonorSpecificReport(ranking.toDisplayText(DONOR_RANKING_ROWS));
+            if (!ranking.getRanked().isEmpty()) {
+                DonorRanking.DonorRequirement best = ranking.getRanked().get(0);
+                appendOutput(String.format("Ranked %d donors. Smallest requirement: %s (Max %.2f, Min %.2f)",
+                        ranking.getRanked().size(), best.donorId(), best.requiredMax(), best.requiredMin()));
+            } else {
+                appendOutput("No donors found in the donor history sheet.");
+            }
+            addRunStep("Donors ranked");
+            writeAudit(action, true, data.size(), List.of(), "");
+        } catch (Exception e) {
+            handleActionError(action, e, 0, List.of());
+        }
+    }
+
     private DateRange promptForFulfillmentDateRange() throws HICDataNotFoundException {
+        return promptForDateRange("Fulfillment Report Date Range", "Collection Date", 21,
+                "Use yyyy-MM-dd for both fulfillment report dates.");
+    }
+
+    private DateRange promptForDateRange(String title, String dateLabel, int defaultDays, String formatError) throws HICDataNotFoundException {
         LocalDate defaultEnd = LocalDate.now();
-        LocalDate defaultStart = defaultEnd.minusDays(21);
+        LocalDate defaultStart = defaultEnd.minusDays(defaultDays);
         JTextField startField = new JTextField(defaultStart.toString(), 12);
         JTextField endField = new JTextField(defaultEnd.toString(), 12);
 
         JPanel panel = new JPanel(new GridLayout(2, 2, 8, 8));
-        panel.add(new JLabel("Start Collection Date (yyyy-MM-dd)"));
+        panel.add(new JLabel("Start " + dateLabel + " (yyyy-MM-dd)"));
         panel.add(startField);
-        panel.add(new JLabel("End Collection Date (yyyy-MM-dd)"));
+        panel.add(new JLabel("End " + dateLabel + " (yyyy-MM-dd)"));
         panel.add(endField);
 
         int result = JOptionPane.showConfirmDialog(
                 this,
                 panel,
-                "Fulfillment Report Date Range",
+                title,
                 JOptionPane.OK_CANCEL_OPTION,
                 JOptionPane.PLAIN_MESSAGE
         );
@@ -2158,11 +2535,11 @@ public class DonorDataGUI extends JFrame {
             LocalDate startDate = LocalDate.parse(startField.getText().trim(), DateTimeFormatter.ISO_LOCAL_DATE);
             LocalDate endDate = LocalDate.parse(endField.getText().trim(), DateTimeFormatter.ISO_LOCAL_DATE);
             if (endDate.isBefore(startDate)) {
-                throw new HICDataNotFoundException("End Collection Date must be on or after Start Collection Date.");
+                throw new HICDataNotFoundException("End " + dateLabel + " must be on or after Start " + dateLabel + ".");
             }
             return new DateRange(startDate, endDate);
         } catch (DateTimeParseException e) {
-            throw new HICDataNotFoundException("Use yyyy-MM-dd for both fulfillment report dates.");
+            throw new HICDataNotFoundException(formatError);
         }
     }
 
@@ -2217,18 +2594,19 @@ public class DonorDataGUI extends JFrame {
             String donor = donorField.getText().trim();
             String labelTemplatePath = resolveLabelTemplatePath();
 
-            processor.sortByCellTypeAndDateTime(data);
+            data = processor.sortedByCellTypeAndDateTime(data);
+            PartitionedOrders partitionedOrders = processor.partition(data);
 
             String cdOutput = outputPath("CD4CD8_Labels.docx");
             String otherOutput = outputPath("OTHERCellTypes_Labels.docx");
             String cdRequestListOutput = outputPath("CD4_CD8_Request_List.xlsx");
             String priorityOutput = outputPath("Low_Yield_Order_Priority.xlsx");
 
-            hicExcelLogger.exportToWord(processor.getCD4CD8CellRecords(data), labelTemplatePath, cdOutput, donor);
-            hicExcelLogger.exportToWord(processor.getOtherCellTypeRecords(data), labelTemplatePath, otherOutput, donor);
-            hicExcelLogger.exportCD4CD8RequestList(data, cdRequestListOutput, donor);
+            hicExcelLogger.exportToWord(partitionedOrders.getCd4Cd8Orders(), labelTemplatePath, cdOutput, donor);
+            hicExcelLogger.exportToWord(partitionedOrders.getOtherCellTypeOrders(), labelTemplatePath, otherOutput, donor);
+            hicExcelLogger.exportCD4CD8RequestList(partitionedOrders, cdRequestListOutput, donor);
             FulfillmentStats fulfillmentStats = fulfillmentStatsForPriorityExport(data);
-            hicExcelLogger.exportLowYieldPriorityList(data, priorityOutput, fulfillmentStats, donor);
+            hicExcelLogger.exportLowYieldPriorityList(partitionedOrders, priorityOutput, fulfillmentStats, donor);
             appendOutput("Created labels:\n- " + cdOutput + "\n- " + otherOutput);
             appendOutput("Exported CD4/CD8 requester list to: " + cdRequestListOutput);
             appendOutput("Exported low-yield order priority list to: " + priorityOutput);
@@ -2274,12 +2652,16 @@ public class DonorDataGUI extends JFrame {
 
             appendOutput("Running complete workflow...\n");
 
-            String summaryText = processor.getHICSummaryString(data);
+            // Saved before the sort below, so a reopened day keeps the input order
+            String snapshotOutput = saveSnapshot(data, donor);
+
+            // One pass over the orders feeds the summary, apheresis and donor-specific reports
+            CellTypeSummary cellTypeSummary = processor.summarize(data);
+            String summaryText = processor.getHICSummaryString(cellTypeSummary);
             appendOutput(summaryText);
-            List<Double> maxAndMinRequests = processor.printHICSummary(data);
-            String apheresisText = processor.getApheresisCalculationString(maxAndMinRequests);
+            String apheresisText = processor.getApheresisCalculationString(cellTypeSummary);
             appendOutput(apheresisText);
-            setDonorSpecificReport(buildDonorSpecificApheresisReport(maxAndMinRequests));
+            setDonorSpecificReport(buildDonorSpecificApheresisReport(cellTypeSummary));
 
             String unsortedOutput = outputPath("UnsortedHICList.xlsx");
             String sortedOutput = outputPath("SortedHICList.xlsx");
@@ -2293,34 +2675,174 @@ public class DonorDataGUI extends JFrame {
 
             FulfillmentStats fulfillmentStats = fulfillmentStatsForPriorityExport(data);
 
-            hicExcelLogger.logHICData(data, unsortedOutput, false);
-            addGeneratedFile(unsortedOutput);
-
-            processor.sortByCellTypeAndDateTime(data);
-            hicExcelLogger.logHICData(data, sortedOutput, true);
-            addGeneratedFile(sortedOutput);
-
-            hicExcelLogger.exportToWord(processor.getCD4CD8CellRecords(data), labelTemplatePath, cdOutput, donor);
-            hicExcelLogger.exportToWord(processor.getOtherCellTypeRecords(data), labelTemplatePath, otherOutput, donor);
-            hicExcelLogger.exportCD4CD8RequestList(data, cdRequestListOutput, donor);
-            hicExcelLogger.exportLowYieldPriorityList(data, priorityOutput, fulfillmentStats, donor);
-            addGeneratedFile(cdOutput);
-            addGeneratedFile(otherOutput);
-            addGeneratedFile(cdRequestListOutput);
-            addGeneratedFile(priorityOutput);
+            // Every export reads this snapshot and none changes it, so exports that do not wait on each other
+            // are written at the same time
+            List<HICData> orders = List.copyOf(data);
+            ExportPipeline pipeline = new ExportPipeline();
+            pipeline.export("Unsorted list", unsortedOutput, () -> hicExcelLogger.logHICData(orders, unsortedOutput, false));
+
+            // Sorted and split once here; the label, requester, priority and sign-out exports all reuse this
+            ExportPipeline.Step<SortedOrders> sortedOrders = pipeline.compute("Sort orders",
+                    () -> processor.sortedByCellTypeAndDateTime(orders));
+            ExportPipeline.Step<PartitionedOrders> partitionedOrders = pipeline.compute("Partition orders",
+                    () -> processor.partition(sortedOrders.get()), sortedOrders);
+            pipeline.export("Sorted list", sortedOutput,
+                    () -> hicExcelLogger.logHICData(sortedOrders.get(), sortedOutput, true), sortedOrders);
+            pipeline.export("CD4/CD8 labels", cdOutput, () -> hicExcelLogger.exportToWord(
+                    partitionedOrders.get().getCd4Cd8Orders(), labelTemplatePath, cdOutput, donor), partitionedOrders);
+            pipeline.export("Other labels", otherOutput, () -> hicExcelLogger.exportToWord(
+                    partitionedOrders.get().getOtherCellTypeOrders(), labelTemplatePath, otherOutput, donor), partitionedOrders);
+            pipeline.export("CD4/CD8 request list", cdRequestListOutput, () -> hicExcelLogger.exportCD4CD8RequestList(
+                    partitionedOrders.get(), cdRequestListOutput, donor), partitionedOrders);
+            pipeline.export("Low-yield priority list", priorityOutput, () -> hicExcelLogger.exportLowYieldPriorityList(
+                    partitionedOrders.get(), priorityOutput, fulfillmentStats, donor), partitionedOrders);
+            pipeline.export("Sign-out sheet", signOutOutput, () -> hicExcelLogger.exportToSignOutSheet(
+                    partitionedOrders.get(), signOutTemplatePath, signOutOutput, donor), partitionedOrders);
+
+            List<String> outputs = new ArrayList<>();
+            List<String> failures = new ArrayList<>();
+            appendOutput("\nExport timings:");
+            for (ExportPipeline.Result result : pipeline.run()) {
+                if (result.isSuccess()) {
+                    appendOutput(String.format("  %-26s %6d ms", result.name(), result.millis()));
+                    if (result.output() != null) {
+                        addGeneratedFile(result.output());
+                        outputs.add(result.output());
+                    }
+                } else {
+                    String message = result.error().getMessage() == null ? result.error().toString() : result.error().getMessage();
+                    appendOutputStatus("ERROR", result.name() + " - " + message);
+                    failures.add(result.name());
+                }
+            }
+            outputs.add(snapshotOutput);
 
-            hicExcelLogger.exportToSignOutSheet(data, signOutTemplatePath, signOutOutput, donor);
-            addGeneratedFile(signOutOutput);
+            if (!failures.isEmpty()) {
+                handleActionError(action, new IOException(failures.size() + " export(s) failed: " + String.join(", ", failures)
+                        + ". The other outputs were written."), orders.size(), outputs);
+                return;
+            }
             addRunStep("Workflow exports completed");
 
             appendOutput("\nAll workflow actions completed successfully.");
             appendOutput("[SUCCESS] Completed full workflow.");
-            writeAudit(action, true, data.size(), List.of(unsortedOutput, sortedOutput, cdOutput, otherOutput, cdRequestListOutput, priorityOutput, signOutOutput), "");
+            writeAudit(action, true, orders.size(), outputs, "");
+        } catch (Exception e) {
+            handleActionError(action, e, 0, List.of());
+        }
+    }
+
+    /**
+     * Save the parsed day next to the outputs, one file per request day and donor
+     *
+     * @return path of the snapshot file
+     */
+    private String saveSnapshot(List<HICData> data, String donor) throws IOException {
+        String day = data.stream()
+                .map(HICData::getRequestDate)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(LocalDateTime.now())
+                .toLocalDate()
+                .toString();
+        String donorPart = donor.isEmpty() ? "" : "_" + donor.replaceAll("[^A-Za-z0-9-]", "");
+        String output = outputPath("HIC_Snapshot_" + day + donorPart + OrderSnapshot.FILE_EXTENSION);
+
+        new OrderSnapshot(donor, LocalDateTime.now().withNano(0), data).write(Path.of(output));
+        appendOutput("Saved snapshot to: " + output);
+        addGeneratedFile(output);
+        return output;
+    }
+
+    /**
+     * Load a saved day into the preview table
+     */
+    private void openSnapshot() {
+        String action = "Open Snapshot";
+        String selected = chooseFile(outputPath("HIC_Snapshot" + OrderSnapshot.FILE_EXTENSION), "HIC Snapshot",
+                OrderSnapshot.FILE_EXTENSION.substring(1));
+        if (selected == null) {
+            return;
+        }
+
+        try {
+            OrderSnapshot snapshot = OrderSnapshot.read(Path.of(selected));
+            if (snapshot.records().isEmpty()) {
+                throw new HICDataNotFoundException("Snapshot has no records: " + selected);
+            }
+
+            showLoadedRecords(snapshot.records());
+            donorField.setText(snapshot.donor() == null ? "" : snapshot.donor());
+            appendOutputStatus("INFO", "Opened snapshot " + selected + " (" + snapshot.records().size() + " records, saved "
+                    + DATE_TIME_FORMATTER.format(snapshot.savedAt()) + ").");
+            setStatus("Snapshot loaded.");
+        } catch (Exception e) {
+            handleActionError(action, e, 0, List.of());
+        }
+    }
+
+    /**
+     * Load every input file of a folder for a range of days into the preview table, merging orders
+     * that appear in more than one file
+     */
+    private void loadInputFolder() {
+        String action = "Load Folder";
+        String folder = chooseDirectory(preferences.get(PREF_INPUT_FOLDER, ""), "Select Input Folder");
+        if (folder == null) {
+            return;
+        }
+
+        try {
+            DateRange dateRange = promptForDateRange("Input Files Date Range", "File Date", 7,
+                    "Use yyyy-MM-dd for both file dates.");
+            if (dateRange == null) {
+                setStatus("Action cancelled.");
+                return;
+            }
+            preferences.put(PREF_INPUT_FOLDER, folder);
+
+            BatchFileLoader loader = new BatchFileLoader(FileReader.getInstance());
+            List<Path> files = loader.listInputFiles(Path.of(folder), dateRange.startDate(), dateRange.endDate());
+            if (files.isEmpty()) {
+                throw new HICDataNotFoundException("No input files found in " + folder + " for "
+                        + dateRange.startDate() + " to " + dateRange.endDate() + ".");
+            }
+
+            BatchFileLoader.BatchResult result = loader.load(files);
+            if (result.records().isEmpty()) {
+                throw new HICDataNotFoundException("No records parsed from " + files.size() + " file(s) in " + folder + ".");
+            }
+
+            showLoadedRecords(result.records());
+            appendOutput("Loaded " + files.size() + " file(s) from " + folder + "\n\n" + result.describe());
+            appendOutputStatus("INFO", "Loaded " + result.records().size() + " records from " + files.size() + " file(s).");
+            setStatus("Folder loaded.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            handleActionError(action, e, 0, List.of());
         } catch (Exception e) {
             handleActionError(action, e, 0, List.of());
         }
     }
 
+    /**
+     * Put records that did not come from the input area into the preview table. The input area is cleared
+     * because the preview no longer comes from it; typing new input replaces these rows again.
+     */
+    private void showLoadedRecords(List<HICData> records) {
+        dataArea.setText("");
+        previewSyncTimer.stop();
+        inputParser.reset("");
+        previewRevision = inputRevision;
+
+        fillPreview(records);
+        previewFollowsInput = false;
+
+        recordsLabel.setText("Parsed records: " + records.size());
+        runRecordsValueLabel.setText(String.valueOf(records.size()));
+        appendValidation(formatValidation(validateData("", records)));
+    }
+
     private void handleActionError(String action, Exception e, int recordCount, List<String> outputs) {
         String message = e.getMessage() == null ? "Unexpected error." : e.getMessage();
         JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
@@ -2362,7 +2884,7 @@ public class DonorDataGUI extends JFrame {
         return resolveTemplatePath(preferences.get(PREF_SIGNOUT_TEMPLATE, DEFAULT_SIGNOUT_TEMPLATE), DEFAULT_SIGNOUT_TEMPLATE);
     }
 
-    private String buildDonorSpecificApheresisReport(List<Double> maxAndMinRequests) {
+    private String buildDonorSpecificApheresisReport(CellTypeSummary cellTypeSummary) {
         String donorId = donorField.getText().trim();
         if (donorId.isBlank()) {
             return "Donor Specific Apheresis\n========================\n\nEnter donor number to enable donor-specific adjustments.";
@@ -2385,8 +2907,8 @@ public class DonorDataGUI extends JFrame {
                 latestByCell.put(record.getCellType(), record);
             }
 
-            Map<String, double[]> defaultApheresis = processor.calculateDefaultApheresisByCell(maxAndMinRequests);
-            Map<String, double[]> requestedByCell = processor.calculateRequestedCellsByCell(maxAndMinRequests);
+            Map<String, double[]> defaultApheresis = processor.calculateDefaultApheresisByCell(cellTypeSummary);
+            Map<String, double[]> requestedByCell = processor.calculateRequestedCellsByCell(cellTypeSummary);
             Map<String, double[]> adjusted = new HashMap<>();
             String historyDate = latestRecords.get(0).getDate().toString();
 
@@ -2439,6 +2961,12 @@ public class DonorDataGUI extends JFrame {
     }
 
     private String resolveTemplatePath(String configuredPath, String fallbackName) throws HICDataNotFoundException {
+        TemplateLookup lookup = new TemplateLookup(configuredPath, fallbackName);
+        Path resolved = resolvedTemplatePaths.get(lookup);
+        if (resolved != null && Files.isRegularFile(resolved)) {
+            return resolved.toString();
+        }
+
         String normalizedConfiguredPath = normalizeConfiguredPath(configuredPath);
         Path configured = toPathOrNull(normalizedConfiguredPath);
 
@@ -2463,15 +2991,20 @@ public class DonorDataGUI extends JFrame {
 
         for (Path candidate : candidates) {
             if (Files.exists(candidate) && Files.isRegularFile(candidate)) {
+                resolvedTemplatePaths.put(lookup, candidate);
                 return candidate.toString();
             }
         }
 
+        resolvedTemplatePaths.remove(lookup);
         throw new HICDataNotFoundException(
                 "Missing template: " + fallbackName + ". Configure template paths in Settings."
         );
     }
 
+    private record TemplateLookup(String configuredPath, String fallbackName) {
+    }
+
     private String normalizeConfiguredPath(String value) {
         if (value == null) {
             return "";
@@ -2560,11 +3093,7 @@ public class DonorDataGUI extends JFrame {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hash = digest.digest((input == null ? "" : input).getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.substring(0, 16);
+            return HexFormat.of().formatHex(hash, 0, 8);
         } catch (NoSuchAlgorithmException e) {
             return "hash-unavailable";
         }
@@ -2871,8 +3400,12 @@ public class DonorDataGUI extends JFrame {
     }
 
     private String chooseDirectory(String initialPath) {
+        return chooseDirectory(initialPath, "Select Output Directory");
+    }
+
+    private String chooseDirectory(String initialPath, String title) {
         JFileChooser chooser = new JFileChooser();
-        chooser.setDialogTitle("Select Output Directory");
+        chooser.setDialogTitle(title);
         chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
         chooser.setAcceptAllFileFilterUsed(false);
 
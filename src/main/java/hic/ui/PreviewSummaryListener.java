@@ -0,0 +1,132 @@
+package hic.ui;
+
+import hic.processor.LiveCellTypeSummary;
+import hic.util.CellType;
+import hic.util.FieldDecoders;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a {@link LiveCellTypeSummary} in step with the preview table. Every inserted, edited or deleted row
+ * changes the totals by that row alone. The cell type, max and min each row contributed are remembered, because
+ * a delete event arrives after the row is already gone from the model. Rows whose cell type is not standard or
+ * whose max or min is not a number contribute nothing until they are corrected.
+ */
+class PreviewSummaryListener implements TableModelListener {
+
+    private final int cellTypeColumn;
+    private final int maxColumn;
+    private final int minColumn;
+    private final Runnable onChange;
+    private final LiveCellTypeSummary summary = new LiveCellTypeSummary();
+    private final List<RowContribution> rows = new ArrayList<>();
+
+    /**
+     * @param cellTypeColumn model column of the cell type
+     * @param maxColumn      model column of the max request
+     * @param minColumn      model column of the min request
+     * @param onChange       called on the event thread after the totals change
+     */
+    PreviewSummaryListener(int cellTypeColumn, int maxColumn, int minColumn, Runnable onChange) {
+        this.cellTypeColumn = cellTypeColumn;
+        this.maxColumn = maxColumn;
+        this.minColumn = minColumn;
+        this.onChange = onChange;
+    }
+
+    LiveCellTypeSummary getSummary() {
+        return summary;
+    }
+
+    @Override
+    public void tableChanged(TableModelEvent e) {
+        TableModel model = (TableModel) e.getSource();
+        int firstRow = e.getFirstRow();
+        int lastRow = e.getLastRow();
+
+        // fireTableDataChanged and structure changes give no row range
+        if (firstRow == TableModelEvent.HEADER_ROW || lastRow == Integer.MAX_VALUE) {
+            rebuild(model);
+            onChange.run();
+            return;
+        }
+
+        switch (e.getType()) {
+            case TableModelEvent.INSERT:
+                for (int row = firstRow; row <= lastRow; row++) {
+                    RowContribution contribution = readRow(model, row);
+                    rows.add(row, contribution);
+                    summary.add(contribution.cellType(), contribution.max(), contribution.min());
+                }
+                break;
+            case TableModelEvent.DELETE:
+                for (int row = Math.min(lastRow, rows.size() - 1); row >= firstRow; row--) {
+                    RowContribution contribution = rows.remove(row);
+                    summary.remove(contribution.cellType(), contribution.max(), contribution.min());
+                }
+                break;
+            default:
+                if (!touchesTotals(e.getColumn())) {
+                    return;
+                }
+                for (int row = firstRow; row <= lastRow && row < rows.size(); row++) {
+                    RowContribution old = rows.get(row);
+                    RowContribution updated = readRow(model, row);
+                    summary.remove(old.cellType(), old.max(), old.min());
+                    summary.add(updated.cellType(), updated.max(), updated.min());
+                    rows.set(row, updated);
+                }
+                break;
+        }
+
+        // A model changed behind the listener's back cannot be patched, start over
+        if (rows.size() != model.getRowCount()) {
+            rebuild(model);
+        }
+        onChange.run();
+    }
+
+    private boolean touchesTotals(int column) {
+        return column == TableModelEvent.ALL_COLUMNS || column == cellTypeColumn || column == maxColumn
+                || column == minColumn;
+    }
+
+    private void rebuild(TableModel model) {
+        rows.clear();
+        summary.clear();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            RowContribution contribution = readRow(model, row);
+            rows.add(contribution);
+            summary.add(contribution.cellType(), contribution.max(), contribution.min());
+        }
+    }
+
+    private RowContribution readRow(TableModel model, int row) {
+        CellType cellType = CellType.fromLabel(String.valueOf(model.getValueAt(row, cellTypeColumn)).trim());
+        if (cellType == null) {
+            return RowContribution.NONE;
+        }
+        try {
+            return new RowContribution(cellType, decimal(model.getValueAt(row, maxColumn)),
+                    decimal(model.getValueAt(row, minColumn)));
+        } catch (NumberFormatException e) {
+            return RowContribution.NONE;
+        }
+    }
+
+    private static double decimal(Object value) {
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        return FieldDecoders.parseDecimal(String.valueOf(value).trim());
+    }
+
+    private record RowContribution(CellType cellType, double max, double min) {
+
+        static final RowContribution NONE = new RowContribution(null, 0, 0);
+    }
+}
@@ -0,0 +1,98 @@
+package hic.util;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * One recently cancelled request listed under an order, e.g. {@code #52094: 2026-01-27}. Lines in that exact
+ * form are kept as the order number and date only; anything else also keeps its text so it reads back unchanged.
+ *
+ * @param orderNumber of the cancelled request, or NO_ORDER if the line does not start with # and a number
+ * @param date        of the cancellation, or null if the line has none
+ * @param line        the trimmed line when it is not in the standard form, null otherwise
+ */
+public record CancelledRequest(int orderNumber, LocalDate date, String line) {
+
+    public static final int NO_ORDER = -1;
+
+    /**
+     * @param text one cancellation line
+     * @return the decoded reference
+     */
+    public static CancelledRequest parse(String text) {
+        String trimmed = text.trim();
+        int length = trimmed.length();
+        if (length == 0 || trimmed.charAt(0) != '#') {
+            return new CancelledRequest(NO_ORDER, null, trimmed);
+        }
+
+        int digitsEnd = 1;
+        long orderNumber = 0;
+        while (digitsEnd < length && digitsEnd < 11 && isDigit(trimmed.charAt(digitsEnd))) {
+            orderNumber = orderNumber * 10 + (trimmed.charAt(digitsEnd) - '0');
+            digitsEnd++;
+        }
+        if (digitsEnd == 1 || orderNumber > Integer.MAX_VALUE) {
+            return new CancelledRequest(NO_ORDER, null, trimmed);
+        }
+
+        // Standard form: #<order>: yyyy-MM-dd, with no leading zeros so the text can be rebuilt
+        int dateStart = digitsEnd + 2;
+        boolean leadingZero = trimmed.charAt(1) == '0' && digitsEnd > 2;
+        if (!leadingZero && length == dateStart + 10
+                && trimmed.charAt(digitsEnd) == ':' && trimmed.charAt(digitsEnd + 1) == ' ') {
+            LocalDate date = parseIsoDate(trimmed, dateStart);
+            if (date != null) {
+                return new CancelledRequest((int) orderNumber, date, null);
+            }
+        }
+        return new CancelledRequest((int) orderNumber, null, trimmed);
+    }
+
+    /**
+     * @return true for a # line, the lines counted as recent cancellations
+     */
+    public boolean isReference() {
+        return line == null || line.startsWith("#");
+    }
+
+    /**
+     * @return the line as it appeared in the input
+     */
+    public String toText() {
+        return line != null ? line : "#" + orderNumber + ": " + date;
+    }
+
+    private static LocalDate parseIsoDate(String text, int start) {
+        if (text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-') {
+            return null;
+        }
+        int year = digits(text, start, 4);
+        int month = digits(text, start + 5, 2);
+        int day = digits(text, start + 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            return null;
+        }
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char ch = text.charAt(i);
+            if (!isDigit(ch)) {
+                return -1;
+            }
+            value = value * 10 + (ch - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+}
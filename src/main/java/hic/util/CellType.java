@@ -0,0 +1,398 @@
+package hic.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cell types handled by HIC, declared in summary/sort order. Every place that recognizes, groups or orders
+ * cell types resolves to one of these constants through precomputed lookup tables, so the ordinal can be used
+ * as an array index instead of comparing strings.
+ */
+public enum CellType {
+
+    B_CELLS("B Cells", "B Cells", 20.0 / 40.0, 2, true, "b", LimsFollower.CELLS_OR_COUNT),
+    NK_CELLS("NK Cells", "NK Cells", 20.0 / 40.0, 3, true, "nk", LimsFollower.CELLS_OR_COUNT),
+    CD8("CD8+", "CD8+ T", 17.0 / 40.0, 0, true, "cd8+", LimsFollower.NONE),
+    CD4("CD4+", "CD4+ T", 5.0 / 40.0, 1, true, "cd4+", LimsFollower.NONE),
+    MONOCYTES("Monocytes", "Monocytes", 7.0 / 40.0, 4, false, "monocytes", LimsFollower.NONE),
+    PBMC("PBMC", "PBMC", 0.0, 5, false, "pbmc", LimsFollower.NONE),
+    TOTAL_T("Total T", "Total T", 4.0 / 40.0, 6, true, "total", LimsFollower.T),
+    UNPURIFIED_APHERESIS("Unpurified Apheresis", "Apheresis", 0.0, 7, false, "unpurified", LimsFollower.NONE),
+    TOP_LAYER_FICOLL("Top Layer Ficoll", "Top Ficoll", 0.0, 8, false, "top", LimsFollower.NONE),
+    BOTTOM_LAYER_FICOLL("Bottom Layer Ficoll", "Bottom Ficoll", 0.0, 9, false, "bottom", LimsFollower.NONE);
+
+    /**
+     * What has to follow the LIMS keyword before it counts as the start of a cell type
+     */
+    private enum LimsFollower {
+        NONE,
+        CELLS_OR_COUNT,
+        T
+    }
+
+    private static final CellType[] VALUES = values();
+
+    private static final Map<String, CellType> BY_LABEL = new HashMap<>();
+
+    // Keyword that opens a cell type in a LIMS export line, e.g. "NK" in "NK Cells"
+    private static final AliasTable LIMS_TOKENS = new AliasTable();
+
+    // Labels and known spellings, compared with everything but letters, digits and + removed
+    private static final AliasTable ALIASES = new AliasTable();
+
+    // Keywords looked for anywhere in free text, valued by the priority of the match
+    private static final AliasTable FREE_TEXT_KEYWORDS = new AliasTable();
+    private static final CellType[] FREE_TEXT_PRIORITY = {
+            CD4, CD8, NK_CELLS, B_CELLS, TOTAL_T, MONOCYTES, PBMC, UNPURIFIED_APHERESIS, TOP_LAYER_FICOLL, BOTTOM_LAYER_FICOLL
+    };
+
+    static {
+        for (CellType type : VALUES) {
+            BY_LABEL.put(type.label, type);
+            LIMS_TOKENS.put(type.limsToken, type.ordinal());
+            ALIASES.putCleaned(type.label, type.ordinal());
+            ALIASES.putCleaned(type.limsToken, type.ordinal());
+        }
+
+        ALIASES.putCleaned("CD4+ T", CD4.ordinal());
+        ALIASES.putCleaned("CD8+ T", CD8.ordinal());
+        ALIASES.putCleaned("Total T Cells", TOTAL_T.ordinal());
+        ALIASES.putCleaned("Unpurified Apheresis Product", UNPURIFIED_APHERESIS.ordinal());
+        ALIASES.putCleaned("Unpurified Apheresis Products", UNPURIFIED_APHERESIS.ordinal());
+
+        String[][] freeTextKeywords = {
+                {"cd4"}, {"cd8"}, {"nk"}, {"b cells", "bcells"}, {"total t"}, {"mono"}, {"pbmc"}, {"unpurified"}, {"top"}, {"bottom"}
+        };
+        for (int priority = 0; priority < freeTextKeywords.length; priority++) {
+            for (String keyword : freeTextKeywords[priority]) {
+                FREE_TEXT_KEYWORDS.put(keyword, priority);
+            }
+        }
+    }
+
+    private final String label;
+    private final String summaryLabel;
+    private final double apheresisFactor;
+    private final int lowYieldPriority;
+    private final boolean incubator;
+    private final String limsToken;
+    private final LimsFollower limsFollower;
+
+    CellType(String label, String summaryLabel, double apheresisFactor, int lowYieldPriority, boolean incubator,
+             String limsToken, LimsFollower limsFollower) {
+        this.label = label;
+        this.summaryLabel = summaryLabel;
+        this.apheresisFactor = apheresisFactor;
+        this.lowYieldPriority = lowYieldPriority;
+        this.incubator = incubator;
+        this.limsToken = limsToken;
+        this.limsFollower = limsFollower;
+    }
+
+    /**
+     * @return canonical name stored on HIC data, e.g. "NK Cells"
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return name used for the row in the order summary, e.g. "CD8+ T"
+     */
+    public String getSummaryLabel() {
+        return summaryLabel;
+    }
+
+    /**
+     * @return share of a 40 unit apheresis needed per unit requested, 0 if apheresis is not calculated for the type
+     */
+    public double getApheresisFactor() {
+        return apheresisFactor;
+    }
+
+    /**
+     * @return position of the type in the low yield priority list, 0 first
+     */
+    public int getLowYieldPriority() {
+        return lowYieldPriority;
+    }
+
+    /**
+     * @return true if the cells are stored in the incubator, false for the deli fridge
+     */
+    public boolean isIncubator() {
+        return incubator;
+    }
+
+    public boolean isCd4OrCd8() {
+        return this == CD4 || this == CD8;
+    }
+
+    /**
+     * @return true if the LIMS keyword only starts a cell type when the next token agrees (see acceptsLimsFollower)
+     */
+    public boolean requiresLimsFollower() {
+        return limsFollower != LimsFollower.NONE;
+    }
+
+    /**
+     * Check the token after the LIMS keyword, compared with everything but letters, digits and + removed.
+     * NK and B need "Cells" or a count, Total needs "T".
+     *
+     * @param text  holding the token
+     * @param start of the token
+     * @param end   just past the token
+     * @return true if the keyword and this token start the cell type
+     */
+    public boolean acceptsLimsFollower(CharSequence text, int start, int end) {
+        switch (limsFollower) {
+            case CELLS_OR_COUNT:
+                return cleanedEquals(text, start, end, "cells") || cleanedIsDigits(text, start, end);
+            case T:
+                return cleanedEquals(text, start, end, "t");
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * @return number of cell types, the size of any array indexed by ordinal
+     */
+    public static int count() {
+        return VALUES.length;
+    }
+
+    public static CellType fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * @param label to look up, must match exactly
+     * @return the cell type with this canonical label, or null
+     */
+    public static CellType fromLabel(String label) {
+        return label == null ? null : BY_LABEL.get(label);
+    }
+
+    /**
+     * @param label to look up, ignoring case
+     * @return the cell type with this canonical label, or null
+     */
+    public static CellType fromLabelIgnoreCase(String label) {
+        CellType type = fromLabel(label);
+        if (type != null || label == null) {
+            return type;
+        }
+        for (CellType candidate : VALUES) {
+            if (candidate.label.equalsIgnoreCase(label)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Look up the LIMS keyword a token starts with, e.g. "NK", "(CD4+)" or "Total"
+     *
+     * @param text  holding the token
+     * @param start of the token
+     * @param end   just past the token
+     * @return the cell type the keyword opens, or null
+     */
+    public static CellType fromLimsToken(CharSequence text, int start, int end) {
+        int ordinal = LIMS_TOKENS.getCleaned(text, start, end);
+        return ordinal < 0 ? null : VALUES[ordinal];
+    }
+
+    public static CellType fromLimsToken(CharSequence token) {
+        return token == null ? null : fromLimsToken(token, 0, token.length());
+    }
+
+    /**
+     * Resolve a label or a known spelling of one ("NK Cells", "nk", "CD4+ T", "Unpurified Apheresis Product").
+     * Case, spacing and punctuation are ignored.
+     *
+     * @param text to resolve
+     * @return the cell type, or null if the text is not a known spelling
+     */
+    public static CellType resolve(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+        int ordinal = ALIASES.getCleaned(text, 0, text.length());
+        return ordinal < 0 ? null : VALUES[ordinal];
+    }
+
+    /**
+     * Resolve free text such as a donor sheet column: "b" and "total" on their own, otherwise the first of
+     * cd4, cd8, nk, b cells, total t, mono, pbmc, unpurified, top, bottom found anywhere in the text.
+     *
+     * @param text to resolve
+     * @return the cell type, or null if no keyword was found
+     */
+    public static CellType resolveFreeText(String text) {
+        if (text == null) {
+            return null;
+        }
+
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        if (end - start == 1 && Character.toLowerCase(text.charAt(start)) == 'b') {
+            return B_CELLS;
+        }
+        if (end - start == 5 && text.regionMatches(true, start, "total", 0, 5)) {
+            return TOTAL_T;
+        }
+
+        int best = Integer.MAX_VALUE;
+        for (int i = start; i < end && best > 0; i++) {
+            int node = AliasTable.ROOT;
+            for (int j = i; j < end; j++) {
+                node = FREE_TEXT_KEYWORDS.step(node, Character.toLowerCase(text.charAt(j)));
+                if (node == AliasTable.NONE) {
+                    break;
+                }
+                int priority = FREE_TEXT_KEYWORDS.valueAt(node);
+                if (priority >= 0 && priority < best) {
+                    best = priority;
+                }
+            }
+        }
+        return best == Integer.MAX_VALUE ? null : FREE_TEXT_PRIORITY[best];
+    }
+
+    private static boolean cleanedEquals(CharSequence text, int start, int end, String lowerCaseValue) {
+        int matched = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!isCleanChar(c)) {
+                continue;
+            }
+            if (matched == lowerCaseValue.length() || toLowerAscii(c) != lowerCaseValue.charAt(matched)) {
+                return false;
+            }
+            matched++;
+        }
+        return matched == lowerCaseValue.length();
+    }
+
+    private static boolean cleanedIsDigits(CharSequence text, int start, int end) {
+        boolean anyDigit = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!isCleanChar(c)) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            anyDigit = true;
+        }
+        return anyDigit;
+    }
+
+    private static boolean isCleanChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+';
+    }
+
+    private static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Trie over printable ASCII storing one int per key. Transitions live in a flat array, so a lookup walks
+     * the text once without allocating.
+     */
+    private static final class AliasTable {
+
+        private static final int ROOT = 0;
+        private static final int NONE = 0; // The root is never a child, so 0 doubles as "no transition"
+        private static final char FIRST_CHAR = ' ';
+        private static final int ALPHABET = '~' - FIRST_CHAR + 1;
+
+        private int[] transitions = new int[ALPHABET * 32];
+        private int[] values = filled(32);
+        private int nodeCount = 1;
+
+        private void put(String key, int value) {
+            int node = ROOT;
+            for (int i = 0; i < key.length(); i++) {
+                int slot = node * ALPHABET + (key.charAt(i) - FIRST_CHAR);
+                if (transitions[slot] == NONE) {
+                    ensureCapacity(nodeCount + 1);
+                    transitions[slot] = nodeCount++;
+                }
+                node = transitions[slot];
+            }
+            values[node] = value;
+        }
+
+        private void putCleaned(String key, int value) {
+            StringBuilder cleaned = new StringBuilder(key.length());
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                if (isCleanChar(c)) {
+                    cleaned.append(toLowerAscii(c));
+                }
+            }
+            put(cleaned.toString(), value);
+        }
+
+        private int step(int node, char c) {
+            if (c < FIRST_CHAR || c >= FIRST_CHAR + ALPHABET) {
+                return NONE;
+            }
+            return transitions[node * ALPHABET + (c - FIRST_CHAR)];
+        }
+
+        private int valueAt(int node) {
+            return values[node];
+        }
+
+        /**
+         * @return value of the key equal to the text once everything but letters, digits and + is removed, or -1
+         */
+        private int getCleaned(CharSequence text, int start, int end) {
+            int node = ROOT;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (!isCleanChar(c)) {
+                    continue;
+                }
+                node = step(node, toLowerAscii(c));
+                if (node == NONE) {
+                    return -1;
+                }
+            }
+            return values[node];
+        }
+
+        private void ensureCapacity(int nodes) {
+            if (nodes <= values.length) {
+                return;
+            }
+            int capacity = Math.max(nodes, values.length * 2);
+            transitions = Arrays.copyOf(transitions, capacity * ALPHABET);
+            int oldLength = values.length;
+            values = Arrays.copyOf(values, capacity);
+            Arrays.fill(values, oldLength, capacity, -1);
+        }
+
+        private static int[] filled(int size) {
+            int[] array = new int[size];
+            Arrays.fill(array, -1);
+            return array;
+        }
+    }
+}
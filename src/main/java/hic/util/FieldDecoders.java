@@ -0,0 +1,240 @@
+package hic.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Decoders for the numeric and timestamp fields of HIC rows. Each one reads the characters in place when the
+ * field has the plain layout HIC data uses, and otherwise hands the text to the JDK parser, so the result and
+ * any exception are the same as calling Integer.parseInt, Double.parseDouble or LocalDateTime.parse directly.
+ */
+public final class FieldDecoders {
+
+    /** Timestamp layout of LIMS exports and the preview table */
+    public static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Integers up to 2^53 and powers of ten up to 10^22 are exact doubles, so one division rounds correctly
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    private FieldDecoders() {
+    }
+
+    /**
+     * Same as Integer.parseInt over text[start, end)
+     *
+     * @throws NumberFormatException if the text is not an int
+     */
+    public static int parseInt(CharSequence text, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        // Nine digits always fit in an int
+        int digits = end - i;
+        if (digits < 1 || digits > 9) {
+            return Integer.parseInt(text.subSequence(start, end).toString());
+        }
+
+        int value = 0;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return Integer.parseInt(text.subSequence(start, end).toString());
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    public static int parseInt(String text) {
+        return parseInt(text, 0, text.length());
+    }
+
+    /**
+     * Same as Double.parseDouble over text[start, end). Plain decimals (-?digits(.digits)?) with at most
+     * 2^53 as mantissa and 22 fraction digits are decoded in place.
+     *
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static double parseDecimal(CharSequence text, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && text.charAt(i) == '-') {
+            negative = true;
+            i++;
+        }
+
+        long mantissa = 0;
+        int mantissaDigits = 0;
+        int integerDigits = 0;
+        while (i < end && isDigit(text.charAt(i))) {
+            mantissa = mantissa * 10 + (text.charAt(i) - '0');
+            mantissaDigits++;
+            integerDigits++;
+            i++;
+            if (mantissaDigits > MAX_MANTISSA_DIGITS) {
+                return parseDecimalSlow(text, start, end);
+            }
+        }
+
+        int fractionDigits = 0;
+        if (i < end && text.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(text.charAt(i))) {
+                mantissa = mantissa * 10 + (text.charAt(i) - '0');
+                mantissaDigits++;
+                fractionDigits++;
+                i++;
+                if (mantissaDigits > MAX_MANTISSA_DIGITS) {
+                    return parseDecimalSlow(text, start, end);
+                }
+            }
+            if (fractionDigits == 0) {
+                return parseDecimalSlow(text, start, end);
+            }
+        }
+
+        if (i != end || integerDigits == 0 || mantissa > MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+            return parseDecimalSlow(text, start, end);
+        }
+
+        double value = fractionDigits == 0 ? (double) mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    public static double parseDecimal(String text) {
+        return parseDecimal(text, 0, text.length());
+    }
+
+    /**
+     * Same as LocalDateTime.parse(date + " " + time, DATE_TIME_FORMATTER) where the date and time are two
+     * ranges of the same text, e.g. two fields of a LIMS line
+     *
+     * @throws java.time.format.DateTimeParseException if the text is not a valid timestamp
+     */
+    public static LocalDateTime parseDateTime(CharSequence text, int dateStart, int dateEnd, int timeStart, int timeEnd) {
+        LocalDateTime value = decodeDateTime(text, dateStart, dateEnd, timeStart, timeEnd);
+        if (value != null) {
+            return value;
+        }
+        String joined = text.subSequence(dateStart, dateEnd) + " " + text.subSequence(timeStart, timeEnd);
+        return LocalDateTime.parse(joined, DATE_TIME_FORMATTER);
+    }
+
+    /**
+     * Same as LocalDateTime.parse(text, DATE_TIME_FORMATTER)
+     *
+     * @throws java.time.format.DateTimeParseException if the text is not a valid timestamp
+     */
+    public static LocalDateTime parseDateTime(String text) {
+        if (text.length() == 19 && text.charAt(10) == ' ') {
+            LocalDateTime value = decodeDateTime(text, 0, 10, 11, 19);
+            if (value != null) {
+                return value;
+            }
+        }
+        return LocalDateTime.parse(text, DATE_TIME_FORMATTER);
+    }
+
+    /**
+     * Same as LocalDate.parse over the trimmed text (ISO yyyy-MM-dd)
+     *
+     * @throws java.time.format.DateTimeParseException if the text is not a valid date
+     */
+    public static LocalDate parseIsoDate(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        if (end - start == 10) {
+            int year = readDigits(text, start, 4);
+            int month = readDigits(text, start + 5, 2);
+            int day = readDigits(text, start + 8, 2);
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && text.charAt(start + 4) == '-'
+                    && text.charAt(start + 7) == '-' && day <= monthLength(year, month)) {
+                return LocalDate.of(year, month, day);
+            }
+        }
+        return LocalDate.parse(text.subSequence(start, end));
+    }
+
+    /**
+     * @return the timestamp if both ranges have the exact yyyy-MM-dd and HH:mm:ss layout and hold a valid value,
+     * null when the formatter has to decide (other layouts, out of range fields, day past the end of the month)
+     */
+    private static LocalDateTime decodeDateTime(CharSequence text, int dateStart, int dateEnd, int timeStart, int timeEnd) {
+        if (dateEnd - dateStart != 10 || timeEnd - timeStart != 8) {
+            return null;
+        }
+        if (text.charAt(dateStart + 4) != '-' || text.charAt(dateStart + 7) != '-'
+                || text.charAt(timeStart + 2) != ':' || text.charAt(timeStart + 5) != ':') {
+            return null;
+        }
+
+        int year = readDigits(text, dateStart, 4);
+        int month = readDigits(text, dateStart + 5, 2);
+        int day = readDigits(text, dateStart + 8, 2);
+        int hour = readDigits(text, timeStart, 2);
+        int minute = readDigits(text, timeStart + 3, 2);
+        int second = readDigits(text, timeStart + 6, 2);
+
+        // Year of era starts at 1; the formatter resolves a day past the month end, so leave that to it
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > monthLength(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second);
+    }
+
+    /**
+     * @return the value of count ASCII digits at offset, or -1 if any of them is not a digit
+     */
+    private static int readDigits(CharSequence text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int monthLength(int year, int month) {
+        switch (month) {
+            case 2:
+                return Year.isLeap(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static double parseDecimalSlow(CharSequence text, int start, int end) {
+        return Double.parseDouble(text.subSequence(start, end).toString());
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -1,6 +1,9 @@
 package hic.util;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class HICData {
 
@@ -9,11 +12,17 @@ public class HICData {
     private LocalDateTime requestDate;
     private String name;
     private String cellType;
+    private CellType knownCellType;
     private double maxRequest;
     private double minRequest;
     private String requestType;
     private String requesterComment;
-    private String recentlyCancelledRequests;
+    // Decoded # lines, shared with copies until one of them adds a line
+    private List<CancelledRequest> recentlyCancelled;
+    private boolean recentlyCancelledShared;
+    private int recentlyCancelledCount;
+    // Text of the # lines, joined when first asked for
+    private String recentlyCancelledText;
 
 
 
@@ -27,11 +36,34 @@ public class HICData {
         this.requestDate = requestDate;
         this.name = name;
         this.cellType = cellType;
+        this.knownCellType = CellType.fromLabel(cellType);
         this.maxRequest = maxRequest;
         this.minRequest = minRequest;
-        this.recentlyCancelledRequests = recentlyCancelledRequests;
-
+        this.recentlyCancelled = new ArrayList<>();
+        if (recentlyCancelledRequests == null || recentlyCancelledRequests.isBlank()) {
+            this.recentlyCancelledText = recentlyCancelledRequests;
+        } else {
+            recentlyCancelledRequests.lines().forEach(this::addRecentlyCancelledRequest);
+        }
+    }
 
+    /**
+     * Copy of an order's fields under a new ID, sharing its decoded cancellations instead of re-reading their text
+     */
+    public HICData(int ID, HICData data) {
+        this.ID = ID;
+        this.orderNumber = data.orderNumber;
+        this.requestDate = data.requestDate;
+        this.name = data.name;
+        this.cellType = data.cellType;
+        this.knownCellType = data.knownCellType;
+        this.maxRequest = data.maxRequest;
+        this.minRequest = data.minRequest;
+        this.recentlyCancelled = data.recentlyCancelled;
+        this.recentlyCancelledShared = true;
+        data.recentlyCancelledShared = true;
+        this.recentlyCancelledCount = data.recentlyCancelledCount;
+        this.recentlyCancelledText = data.recentlyCancelledText;
     }
 
     // Getters
@@ -56,6 +88,13 @@ public class HICData {
         return cellType;
     }
 
+    /**
+     * @return the cell type when it is one of the canonical labels, null otherwise
+     */
+    public CellType getKnownCellType() {
+        return knownCellType;
+    }
+
     public double getMaxRequest() {
         return maxRequest;
     }
@@ -72,19 +111,58 @@ public class HICData {
         return requesterComment;
     }
 
+    /**
+     * @return the # lines under the order, one per line
+     */
     public String getRecentlyCancelledRequests() {
-        return recentlyCancelledRequests;
+        if (recentlyCancelledText == null && !recentlyCancelled.isEmpty()) {
+            StringBuilder text = new StringBuilder();
+            for (CancelledRequest cancelledRequest : recentlyCancelled) {
+                if (text.length() > 0) {
+                    text.append('\n');
+                }
+                text.append(cancelledRequest.toText());
+            }
+            recentlyCancelledText = text.toString();
+        }
+        return recentlyCancelledText;
+    }
+
+    /**
+     * @return the decoded # lines under the order
+     */
+    public List<CancelledRequest> getRecentlyCancelled() {
+        return Collections.unmodifiableList(recentlyCancelled);
+    }
+
+    /**
+     * @return number of recent cancellations listed under the order: its lines starting with #, not other
+     * lines kept with them
+     */
+    public int getRecentlyCancelledCount() {
+        return recentlyCancelledCount;
     }
 
     public void addRecentlyCancelledRequest(String recentlyCancelledRequest) {
         if (recentlyCancelledRequest == null || recentlyCancelledRequest.isBlank()) {
             return;
         }
-        if (recentlyCancelledRequests == null || recentlyCancelledRequests.isBlank()) {
-            recentlyCancelledRequests = recentlyCancelledRequest.trim();
-        } else {
-            recentlyCancelledRequests += "\n" + recentlyCancelledRequest.trim();
+        addRecentlyCancelled(CancelledRequest.parse(recentlyCancelledRequest));
+    }
+
+    /**
+     * @param cancelledRequest an already decoded # line
+     */
+    public void addRecentlyCancelled(CancelledRequest cancelledRequest) {
+        if (recentlyCancelledShared) {
+            recentlyCancelled = new ArrayList<>(recentlyCancelled);
+            recentlyCancelledShared = false;
+        }
+        recentlyCancelled.add(cancelledRequest);
+        if (cancelledRequest.isReference()) {
+            recentlyCancelledCount++;
         }
+        recentlyCancelledText = null;
     }
 
     @Override
@@ -0,0 +1,311 @@
+package hic.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * HIC orders stored column by column instead of as one HICData object per order. Each field is a primitive
+ * array indexed by row, requester names are stored once in a dictionary and referenced by code, and the
+ * rarely used text (non-standard cell type labels, cancellation lines) is kept only for the rows that have it.
+ * Scans over many months of orders then touch a few dense arrays instead of chasing an object per row.
+ * <p>
+ * Request dates are kept to the second, which is the precision of LIMS timestamps.
+ */
+public class OrderTable {
+
+    /** Cell type column value of a row whose cell type is not one of the canonical labels */
+    public static final byte UNKNOWN_CELL_TYPE = -1;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int size;
+    private int[] ids;
+    private int[] orderNumbers;
+    private long[] requestSeconds;
+    private byte[] cellTypes;
+    private double[] maxRequests;
+    private double[] minRequests;
+    private int[] nameCodes;
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameCodeByName = new HashMap<>();
+    private final Map<Integer, String> otherCellTypeLabels = new HashMap<>();
+    private final Map<Integer, String> cancellations = new HashMap<>();
+
+    public OrderTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public OrderTable(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        ids = new int[capacity];
+        orderNumbers = new int[capacity];
+        requestSeconds = new long[capacity];
+        cellTypes = new byte[capacity];
+        maxRequests = new double[capacity];
+        minRequests = new double[capacity];
+        nameCodes = new int[capacity];
+    }
+
+    /**
+     * @param hicData records to copy, in order
+     * @return a table holding the same orders
+     */
+    public static OrderTable from(List<HICData> hicData) {
+        OrderTable table = new OrderTable(hicData.size());
+        for (HICData data : hicData) {
+            table.add(data);
+        }
+        return table;
+    }
+
+    /**
+     * Append one order
+     *
+     * @param data to copy into the columns
+     */
+    public void add(HICData data) {
+        add(data.getID(), data.getOrderNumber(), data.getRequestDate(), data.getName(), data.getCellType(),
+                data.getMaxRequest(), data.getMinRequest(), data.getRecentlyCancelledRequests());
+    }
+
+    /**
+     * Append one order
+     *
+     * @return the row index of the new order
+     */
+    public int add(int id, int orderNumber, LocalDateTime requestDate, String name, String cellType,
+                   double maxRequest, double minRequest, String recentlyCancelledRequests) {
+        if (size == ids.length) {
+            grow();
+        }
+
+        int row = size++;
+        ids[row] = id;
+        orderNumbers[row] = orderNumber;
+        requestSeconds[row] = requestDate == null ? NO_DATE : requestDate.toEpochSecond(ZoneOffset.UTC);
+        maxRequests[row] = maxRequest;
+        minRequests[row] = minRequest;
+        nameCodes[row] = encodeName(name);
+
+        CellType knownCellType = CellType.fromLabel(cellType);
+        if (knownCellType != null) {
+            cellTypes[row] = (byte) knownCellType.ordinal();
+        } else {
+            cellTypes[row] = UNKNOWN_CELL_TYPE;
+            otherCellTypeLabels.put(row, cellType);
+        }
+
+        if (recentlyCancelledRequests != null && !recentlyCancelledRequests.isEmpty()) {
+            cancellations.put(row, recentlyCancelledRequests);
+        }
+        return row;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getID(int row) {
+        checkRow(row);
+        return ids[row];
+    }
+
+    public int getOrderNumber(int row) {
+        checkRow(row);
+        return orderNumbers[row];
+    }
+
+    /**
+     * @return request date as seconds since the epoch, reading the local date and time as UTC
+     */
+    public long getRequestEpochSecond(int row) {
+        checkRow(row);
+        return requestSeconds[row];
+    }
+
+    public LocalDateTime getRequestDate(int row) {
+        checkRow(row);
+        long seconds = requestSeconds[row];
+        return seconds == NO_DATE ? null : LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * @return ordinal of the row's cell type, or UNKNOWN_CELL_TYPE
+     */
+    public byte getCellTypeOrdinal(int row) {
+        checkRow(row);
+        return cellTypes[row];
+    }
+
+    /**
+     * @return the cell type when it is one of the canonical labels, null otherwise
+     */
+    public CellType getKnownCellType(int row) {
+        checkRow(row);
+        byte ordinal = cellTypes[row];
+        return ordinal == UNKNOWN_CELL_TYPE ? null : CellType.fromOrdinal(ordinal);
+    }
+
+    public String getCellType(int row) {
+        CellType knownCellType = getKnownCellType(row);
+        return knownCellType == null ? otherCellTypeLabels.get(row) : knownCellType.getLabel();
+    }
+
+    public double getMaxRequest(int row) {
+        checkRow(row);
+        return maxRequests[row];
+    }
+
+    public double getMinRequest(int row) {
+        checkRow(row);
+        return minRequests[row];
+    }
+
+    /**
+     * @return dictionary code of the requester name, see getNameForCode
+     */
+    public int getNameCode(int row) {
+        checkRow(row);
+        return nameCodes[row];
+    }
+
+    public String getName(int row) {
+        return getNameForCode(getNameCode(row));
+    }
+
+    /**
+     * @return number of distinct requester names, the codes run from 0 to this count - 1
+     */
+    public int getNameCount() {
+        return names.size();
+    }
+
+    public String getNameForCode(int code) {
+        return names.get(code);
+    }
+
+    /**
+     * @return cancellation lines attached to the row, empty if there are none
+     */
+    public String getRecentlyCancelledRequests(int row) {
+        checkRow(row);
+        return cancellations.getOrDefault(row, "");
+    }
+
+    /**
+     * Hand the cell type, max and min of every row in [from, to) with a canonical cell type to the accumulator,
+     * reading the columns directly
+     *
+     * @param from        first row, inclusive
+     * @param to          last row, exclusive
+     * @param accumulator receives the rows in order
+     */
+    public void accumulateByCellType(int from, int to, CellTypeAccumulator accumulator) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Rows " + from + " to " + to + " out of bounds for size " + size);
+        }
+        for (int row = from; row < to; row++) {
+            int index = cellTypes[row];
+            if (index == UNKNOWN_CELL_TYPE) {
+                continue;
+            }
+            accumulator.add(index, maxRequests[row], minRequests[row]);
+        }
+    }
+
+    /**
+     * @return a new HICData holding the row
+     */
+    public HICData toHICData(int row) {
+        return new HICData(getID(row), getOrderNumber(row), getRequestDate(row), getName(row), getCellType(row),
+                getMaxRequest(row), getMinRequest(row), getRecentlyCancelledRequests(row));
+    }
+
+    /**
+     * Read-only list view for the APIs that take a List of HICData. Each get builds a new HICData from the
+     * row, so the view costs no memory until it is read; use toHICDataList for APIs that sort or edit.
+     *
+     * @return a view of the rows in order
+     */
+    public List<HICData> asList() {
+        return new RowList();
+    }
+
+    /**
+     * @return a new modifiable list with one HICData per row
+     */
+    public List<HICData> toHICDataList() {
+        List<HICData> list = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            list.add(toHICData(row));
+        }
+        return list;
+    }
+
+    private int encodeName(String name) {
+        Integer code = nameCodeByName.get(name);
+        if (code == null) {
+            code = names.size();
+            names.add(name);
+            nameCodeByName.put(name, code);
+        }
+        return code;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        orderNumbers = Arrays.copyOf(orderNumbers, capacity);
+        requestSeconds = Arrays.copyOf(requestSeconds, capacity);
+        cellTypes = Arrays.copyOf(cellTypes, capacity);
+        maxRequests = Arrays.copyOf(maxRequests, capacity);
+        minRequests = Arrays.copyOf(minRequests, capacity);
+        nameCodes = Arrays.copyOf(nameCodes, capacity);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size);
+        }
+    }
+
+    /**
+     * Receives the cell type totals of one row at a time
+     */
+    @FunctionalInterface
+    public interface CellTypeAccumulator {
+
+        /**
+         * @param cellTypeOrdinal ordinal of a canonical cell type
+         * @param maxRequest      of the row
+         * @param minRequest      of the row
+         */
+        void add(int cellTypeOrdinal, double maxRequest, double minRequest);
+    }
+
+    private class RowList extends AbstractList<HICData> implements RandomAccess {
+
+        @Override
+        public HICData get(int index) {
+            return toHICData(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
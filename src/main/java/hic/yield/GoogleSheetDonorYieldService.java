@@ -1,5 +1,7 @@
 package hic.yield;
 
+import hic.util.CellType;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -12,6 +14,7 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -30,15 +33,53 @@ public class GoogleSheetDonorYieldService {
             DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm")
     };
 
+    // How long a downloaded sheet is reused before it is fetched again
+    private static final long FETCH_CACHE_MILLIS = 60_000;
+
+    private String cachedUrl;
+    private List<DonorYieldRecord> cachedRecords;
+    private long cachedAtMillis;
+
     public List<DonorYieldRecord> getMostRecentDonationByCellType(String sheetCsvUrl, String donorId) throws IOException {
         if (sheetCsvUrl == null || sheetCsvUrl.isBlank()) {
             return List.of();
         }
 
-        List<DonorYieldRecord> donorRecords = fetchRecords(sheetCsvUrl).stream()
-                .filter(r -> normalizeDonorId(r.getDonorId()).equals(normalizeDonorId(donorId)))
+        String normalizedDonorId = normalizeDonorId(donorId);
+        List<DonorYieldRecord> donorRecords = cachedRecords(sheetCsvUrl).stream()
+                .filter(r -> normalizeDonorId(r.getDonorId()).equals(normalizedDonorId))
                 .toList();
 
+        return latestByCellType(donorRecords);
+    }
+
+    /**
+     * The most recent donation of every donor in the sheet, read from one download
+     *
+     * @param sheetCsvUrl of the donor history sheet
+     * @return by normalized donor id, each donor's records of their most recent date, one per cell type
+     */
+    public Map<String, List<DonorYieldRecord>> getMostRecentDonationsByDonor(String sheetCsvUrl) throws IOException {
+        if (sheetCsvUrl == null || sheetCsvUrl.isBlank()) {
+            return Map.of();
+        }
+
+        Map<String, List<DonorYieldRecord>> recordsByDonor = new LinkedHashMap<>();
+        for (DonorYieldRecord record : cachedRecords(sheetCsvUrl)) {
+            recordsByDonor.computeIfAbsent(normalizeDonorId(record.getDonorId()), ignored -> new ArrayList<>()).add(record);
+        }
+
+        Map<String, List<DonorYieldRecord>> latestByDonor = new LinkedHashMap<>();
+        for (Map.Entry<String, List<DonorYieldRecord>> entry : recordsByDonor.entrySet()) {
+            List<DonorYieldRecord> latest = latestByCellType(entry.getValue());
+            if (!latest.isEmpty()) {
+                latestByDonor.put(entry.getKey(), latest);
+            }
+        }
+        return latestByDonor;
+    }
+
+    private List<DonorYieldRecord> latestByCellType(List<DonorYieldRecord> donorRecords) {
         if (donorRecords.isEmpty()) {
             return List.of();
         }
@@ -75,6 +116,20 @@ public class GoogleSheetDonorYieldService {
         return new ArrayList<>(latestByCell.values());
     }
 
+    /**
+     * @return the sheet's records, downloaded again only if the last download of this sheet is older than
+     * FETCH_CACHE_MILLIS
+     */
+    private synchronized List<DonorYieldRecord> cachedRecords(String sheetCsvUrl) throws IOException {
+        long now = System.currentTimeMillis();
+        if (cachedRecords == null || !sheetCsvUrl.equals(cachedUrl) || now - cachedAtMillis > FETCH_CACHE_MILLIS) {
+            cachedRecords = List.copyOf(fetchRecords(sheetCsvUrl));
+            cachedUrl = sheetCsvUrl;
+            cachedAtMillis = now;
+        }
+        return cachedRecords;
+    }
+
     public List<DonorYieldRecord> fetchRecords(String sheetCsvUrl) throws IOException {
         URL url = resolveCsvUrl(sheetCsvUrl);
         List<DonorYieldRecord> records = new ArrayList<>();
@@ -181,26 +236,8 @@ public class GoogleSheetDonorYieldService {
     }
 
     public String canonicalizeCellType(String raw) {
-        if (raw == null) {
-            return null;
-        }
-
-        String value = raw.trim().toLowerCase(Locale.ROOT);
-        if (value.isBlank()) {
-            return null;
-        }
-
-        if (value.contains("cd4")) return "CD4+";
-        if (value.contains("cd8")) return "CD8+";
-        if (value.contains("nk")) return "NK Cells";
-        if (value.equals("b") || value.contains("b cells") || value.contains("bcells")) return "B Cells";
-        if (value.contains("total t") || value.equals("total")) return "Total T";
-        if (value.contains("mono")) return "Monocytes";
-        if (value.contains("pbmc")) return "PBMC";
-        if (value.contains("unpurified")) return "Unpurified Apheresis";
-        if (value.contains("top")) return "Top Layer Ficoll";
-        if (value.contains("bottom")) return "Bottom Layer Ficoll";
-        return null;
+        CellType cellType = CellType.resolveFreeText(raw);
+        return cellType == null ? null : cellType.getLabel();
     }
 
     private Map<String, Integer> headerIndex(List<String> headers) {